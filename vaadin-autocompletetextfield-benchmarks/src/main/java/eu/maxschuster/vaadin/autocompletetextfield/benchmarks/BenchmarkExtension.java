@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import java.util.Set;
+
+/**
+ * Exposes the protected query pipeline of
+ * {@link AutocompleteTextFieldExtension} to the benchmarks.
+ *
+ * @author Max Schuster
+ */
+class BenchmarkExtension extends AutocompleteTextFieldExtension {
+
+    private static final long serialVersionUID = 1L;
+
+    public Set<AutocompleteSuggestion> query(AutocompleteQuery query) {
+        return querySuggestions(query);
+    }
+
+    public Object toJson(Set<AutocompleteSuggestion> suggestions) {
+        return suggestionsToJson(suggestions);
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the allocation rate
+ * per operation ({@code gc.alloc.rate.norm}) next to the throughput and the
+ * latency percentiles.
+ * <p>
+ * Accepts the usual JMH command line options, e.g.
+ * {@code java -jar target/benchmarks.jar SuggestionsToJson -p count=50}.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
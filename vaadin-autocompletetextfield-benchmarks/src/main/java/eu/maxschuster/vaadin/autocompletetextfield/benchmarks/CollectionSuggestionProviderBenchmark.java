@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single search of a {@link CollectionSuggestionProvider} with a
+ * limit of 10 suggestions, as sent by a typing user.
+ *
+ * @author Max Schuster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CollectionSuggestionProviderBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"BEGINS", "CONTAINS"})
+    public MatchMode matchMode;
+
+    @Param({"false", "true"})
+    public boolean ignoreCase;
+
+    private CollectionSuggestionProvider provider;
+
+    private AutocompleteQuery[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> values = Dictionaries.createValues(size, 42);
+        provider = new CollectionSuggestionProvider(values, matchMode,
+                ignoreCase, Locale.ENGLISH);
+        String[] terms = Dictionaries.createTerms(values, 1024, matchMode, 7);
+        BenchmarkExtension extension = new BenchmarkExtension();
+        queries = new AutocompleteQuery[terms.length];
+        for (int i = 0; i < terms.length; ++i) {
+            String term = ignoreCase ? terms[i].toUpperCase(Locale.ENGLISH)
+                    : terms[i];
+            queries[i] = new AutocompleteQuery(extension, term, 10);
+        }
+    }
+
+    @Benchmark
+    public Collection<AutocompleteSuggestion> query() {
+        return provider.querySuggestions(queries[next++ & (queries.length - 1)]);
+    }
+
+}
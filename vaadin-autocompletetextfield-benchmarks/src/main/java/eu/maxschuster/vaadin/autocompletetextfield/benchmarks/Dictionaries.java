@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates reproducible dictionaries and search terms for the benchmarks.
+ *
+ * @author Max Schuster
+ */
+final class Dictionaries {
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private Dictionaries() {
+    }
+
+    /**
+     * Creates a list of random capitalized words with 4 to 14 letters.
+     *
+     * @param size The number of words.
+     * @param seed The random seed.
+     * @return The words.
+     */
+    static List<String> createValues(int size, long seed) {
+        Random random = new Random(seed);
+        List<String> values = new ArrayList<String>(size);
+        StringBuilder sb = new StringBuilder(16);
+        for (int i = 0; i < size; ++i) {
+            sb.setLength(0);
+            int length = 4 + random.nextInt(11);
+            for (int c = 0; c < length; ++c) {
+                char letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+                sb.append(c == 0 ? Character.toUpperCase(letter) : letter);
+            }
+            values.add(sb.toString());
+        }
+        return values;
+    }
+
+    /**
+     * Creates search terms a user would type for the given values: the first
+     * three letters for {@link MatchMode#BEGINS} and three letters from the
+     * middle for {@link MatchMode#CONTAINS}.
+     *
+     * @param values The dictionary.
+     * @param count The number of terms.
+     * @param matchMode The {@link MatchMode}.
+     * @param seed The random seed.
+     * @return The terms.
+     */
+    static String[] createTerms(List<String> values, int count,
+            MatchMode matchMode, long seed) {
+        Random random = new Random(seed);
+        String[] terms = new String[count];
+        for (int i = 0; i < count; ++i) {
+            String value = values.get(random.nextInt(values.size()));
+            int start = matchMode == MatchMode.CONTAINS
+                    ? random.nextInt(value.length() - 2) : 0;
+            terms[i] = value.substring(start, start + 3);
+        }
+        return terms;
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.metrics.Histogram;
+import eu.maxschuster.vaadin.autocompletetextfield.metrics.JmxAutocompleteMetrics;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A headless load generator that drives many
+ * {@link AutocompleteTextFieldExtension}s with simulated typing users.
+ * <p>
+ * All users share one {@link CollectionSuggestionProvider}, like the fields
+ * of an application share their provider. The requests are executed by a
+ * fixed number of worker threads, like the request threads of a servlet
+ * container.
+ * </p>
+ * <p>
+ * Options (with their defaults):
+ * </p>
+ * <pre>
+ * --users=5000        simulated users (sessions)
+ * --threads=16        worker threads
+ * --duration=60       measured seconds
+ * --warmup=10         unmeasured seconds before the measurement
+ * --size=100000       dictionary entries
+ * --matchMode=BEGINS  BEGINS or CONTAINS
+ * --limit=10          suggestion limit
+ * --minChars=3        characters before the first query
+ * --keystroke=180     mean milliseconds between keystrokes
+ * --think=2000        mean milliseconds between words
+ * --metrics=false     record JMX metrics
+ * </pre>
+ * <p>
+ * Example:
+ * {@code java -cp target/benchmarks.jar eu.maxschuster.vaadin.autocompletetextfield.benchmarks.LoadTest --users=5000 --threads=32}
+ * </p>
+ * <p>
+ * The service time is measured from the start to the end of a request. The
+ * response time is measured from the time the keystroke was due, so it
+ * includes the time the request had to wait for a worker thread.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+public class LoadTest {
+
+    private final int users;
+
+    private final int threads;
+
+    private final int durationSeconds;
+
+    private final int warmupSeconds;
+
+    private final int size;
+
+    private final MatchMode matchMode;
+
+    private final int limit;
+
+    private final int minChars;
+
+    private final int keystrokeMillis;
+
+    private final int thinkMillis;
+
+    private final boolean metrics;
+
+    private volatile boolean running;
+
+    private volatile boolean measuring;
+
+    private final Histogram serviceTime = new Histogram();
+
+    private final Histogram responseTime = new Histogram();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    public LoadTest(Map<String, String> options) {
+        users = getInt(options, "users", 5000);
+        threads = getInt(options, "threads", 16);
+        durationSeconds = getInt(options, "duration", 60);
+        warmupSeconds = getInt(options, "warmup", 10);
+        size = getInt(options, "size", 100000);
+        matchMode = MatchMode.valueOf(get(options, "matchMode", "BEGINS"));
+        limit = getInt(options, "limit", 10);
+        minChars = getInt(options, "minChars", 3);
+        keystrokeMillis = getInt(options, "keystroke", 180);
+        thinkMillis = getInt(options, "think", 2000);
+        metrics = Boolean.parseBoolean(get(options, "metrics", "false"));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                System.err.println("Invalid option " + arg
+                        + ", expected --name=value");
+                System.exit(1);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        new LoadTest(options).run(System.out);
+    }
+
+    /**
+     * Runs the load test and prints the report.
+     *
+     * @param out The report target.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void run(PrintStream out) throws InterruptedException {
+        List<String> words = Dictionaries.createValues(size, 42);
+        CollectionSuggestionProvider provider = new CollectionSuggestionProvider(
+                words, matchMode, true, Locale.ENGLISH);
+        ScheduledExecutorService executor
+                = Executors.newScheduledThreadPool(threads);
+        if (metrics) {
+            JmxAutocompleteMetrics.getInstance().register(provider, "loadtest");
+        }
+
+        out.printf("Starting %d users on %d threads, dictionary of %d entries%n",
+                users, threads, size);
+        running = true;
+        for (int i = 0; i < users; ++i) {
+            AutocompleteTextFieldExtension extension
+                    = new AutocompleteTextFieldExtension();
+            extension.setSuggestionProvider(provider);
+            extension.setSuggestionLimit(limit);
+            extension.setMinChars(minChars);
+            if (metrics) {
+                extension.setMetrics(JmxAutocompleteMetrics.getInstance());
+            }
+            new SimulatedUser(this, extension, words, i, executor).start();
+        }
+
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        measuring = true;
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        measuring = false;
+        long elapsed = System.nanoTime() - start;
+        running = false;
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        if (metrics) {
+            JmxAutocompleteMetrics.getInstance().unregister(provider);
+        }
+
+        double seconds = elapsed / 1e9;
+        out.printf("Queries:        %d in %.1f s%n", serviceTime.getCount(), seconds);
+        out.printf("Throughput:     %.0f queries/s%n", serviceTime.getCount() / seconds);
+        out.printf("Errors:         %d%n", errors.get());
+        report(out, "Service time", serviceTime);
+        report(out, "Response time", responseTime);
+    }
+
+    private static void report(PrintStream out, String name, Histogram histogram) {
+        out.printf("%-15s p50=%d p99=%d p999=%d max=%d (us)%n", name + ":",
+                micros(histogram.getValueAtPercentile(50)),
+                micros(histogram.getValueAtPercentile(99)),
+                micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getMax()));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    void recordResponse(long serviceNanos, long responseNanos) {
+        if (measuring) {
+            serviceTime.record(serviceNanos);
+            responseTime.record(responseNanos);
+        }
+    }
+
+    void recordError(Exception e) {
+        if (errors.getAndIncrement() == 0) {
+            e.printStackTrace();
+        }
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    int getMinChars() {
+        return minChars;
+    }
+
+    int getKeystrokeMillis() {
+        return keystrokeMillis;
+    }
+
+    int getThinkMillis() {
+        return thinkMillis;
+    }
+
+    private static String get(Map<String, String> options, String key,
+            String defaultValue) {
+        String value = options.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private static int getInt(Map<String, String> options, String key,
+            int defaultValue) {
+        return Integer.parseInt(get(options, key, String.valueOf(defaultValue)));
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the limit handling of
+ * {@link AutocompleteTextFieldExtension#querySuggestions(AutocompleteQuery)}.
+ * <p>
+ * {@code LIMITED} uses the {@link CollectionSuggestionProvider} directly,
+ * which stops matching at the limit. {@code UNLIMITED} wraps it in a plain
+ * {@link AutocompleteSuggestionProvider} that returns all matches, which the
+ * extension has to cut down to the limit.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryPipelineBenchmark {
+
+    public enum ProviderType {
+        LIMITED, UNLIMITED
+    }
+
+    @Param({"LIMITED", "UNLIMITED"})
+    public ProviderType providerType;
+
+    @Param({"10", "50", "0"})
+    public int limit;
+
+    @Param({"100000"})
+    public int size;
+
+    private BenchmarkExtension extension;
+
+    private AutocompleteQuery[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> values = Dictionaries.createValues(size, 42);
+        final CollectionSuggestionProvider provider
+                = new CollectionSuggestionProvider(values, MatchMode.BEGINS,
+                        true, Locale.ENGLISH);
+        extension = new BenchmarkExtension();
+        if (providerType == ProviderType.LIMITED) {
+            extension.setSuggestionProvider(provider);
+        } else {
+            extension.setSuggestionProvider(new AutocompleteSuggestionProvider() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query) {
+                    // ignores the limit, like many legacy providers
+                    return provider.querySuggestions(new AutocompleteQuery(
+                            query.getExtension(), query.getTerm()));
+                }
+            });
+        }
+        // two letter terms produce long result lists
+        String[] terms = Dictionaries.createTerms(values, 1024, MatchMode.BEGINS, 7);
+        queries = new AutocompleteQuery[terms.length];
+        for (int i = 0; i < terms.length; ++i) {
+            queries[i] = new AutocompleteQuery(extension,
+                    terms[i].substring(0, 2), limit);
+        }
+    }
+
+    @Benchmark
+    public Set<AutocompleteSuggestion> querySuggestions() {
+        return extension.query(queries[next++ & (queries.length - 1)]);
+    }
+
+}
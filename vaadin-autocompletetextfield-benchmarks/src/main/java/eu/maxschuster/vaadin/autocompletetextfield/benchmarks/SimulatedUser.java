@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.ServerRpcManager;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.ui.JavaScript.JavaScriptCallbackRpc;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A simulated user typing into an {@link AutocompleteTextFieldExtension}.
+ * <p>
+ * The user types random words of the dictionary one character after the
+ * other and sends a query for every keystroke once the minimum number of
+ * characters is reached, like the client-side does with a short delay. The
+ * queries are passed through the extension's RPC manager, exactly like the
+ * requests of a browser, while holding a lock per user like the session lock
+ * of a real Vaadin session.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+class SimulatedUser implements Runnable {
+
+    private final LoadTest test;
+
+    private final AutocompleteTextFieldExtension extension;
+
+    private final Lock sessionLock = new ReentrantLock();
+
+    private final Random random;
+
+    private final List<String> words;
+
+    private final ScheduledExecutorService executor;
+
+    private String word;
+
+    private int typed;
+
+    private int requestId;
+
+    /**
+     * The time the next keystroke was scheduled for
+     */
+    private long intendedNanos;
+
+    SimulatedUser(LoadTest test, AutocompleteTextFieldExtension extension,
+            List<String> words, long seed, ScheduledExecutorService executor) {
+        this.test = test;
+        this.extension = extension;
+        this.words = words;
+        this.random = new Random(seed);
+        this.executor = executor;
+    }
+
+    /**
+     * Schedules the first keystroke after a random think time.
+     */
+    void start() {
+        nextWord();
+        schedule(random.nextInt(test.getThinkMillis() + 1));
+    }
+
+    @Override
+    public void run() {
+        if (!test.isRunning()) {
+            return;
+        }
+        long start = System.nanoTime();
+        ++typed;
+        if (typed >= test.getMinChars()) {
+            query(word.substring(0, typed), start);
+        }
+        if (typed < word.length()) {
+            schedule(keystrokeDelay());
+        } else {
+            // the user has selected a suggestion and moves to the next field
+            nextWord();
+            schedule(test.getThinkMillis() / 2
+                    + random.nextInt(test.getThinkMillis() + 1));
+        }
+    }
+
+    private void query(String term, long start) {
+        JsonArray arguments = Json.createArray();
+        arguments.set(0, ++requestId);
+        arguments.set(1, term);
+        arguments.set(2, Json.createObject());
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "load", JavaScriptCallbackRpc.class, "call", 2);
+        invocation.setParameters(new Object[]{"serverQuerySuggestions", arguments});
+
+        List<ClientMethodInvocation> responses;
+        sessionLock.lock();
+        try {
+            ServerRpcManager.applyInvocation(extension, invocation);
+            responses = extension.retrievePendingRpcCalls();
+        } catch (Exception e) {
+            test.recordError(e);
+            return;
+        } finally {
+            sessionLock.unlock();
+        }
+        long end = System.nanoTime();
+
+        boolean answered = false;
+        for (ClientMethodInvocation response : responses) {
+            Object[] parameters = response.getParameters();
+            if (parameters.length > 0 && "setSuggestions".equals(parameters[0])) {
+                answered = true;
+            }
+        }
+        if (answered) {
+            test.recordResponse(end - start, end - intendedNanos);
+        } else {
+            test.recordError(new IllegalStateException(
+                    "No suggestions for \"" + term + "\""));
+        }
+    }
+
+    private void nextWord() {
+        word = words.get(random.nextInt(words.size()));
+        typed = 0;
+    }
+
+    private int keystrokeDelay() {
+        // roughly normal distributed around the configured keystroke time
+        double delay = test.getKeystrokeMillis()
+                * (1 + random.nextGaussian() / 3);
+        return (int) Math.max(20, delay);
+    }
+
+    private void schedule(int delayMillis) {
+        intendedNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        executor.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+}
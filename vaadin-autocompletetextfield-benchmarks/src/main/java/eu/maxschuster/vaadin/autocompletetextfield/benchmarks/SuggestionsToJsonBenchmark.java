@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.benchmarks;
+
+import com.vaadin.server.Resource;
+import com.vaadin.server.ThemeResource;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures
+ * {@link AutocompleteTextFieldExtension#suggestionsToJson(java.util.Set)}.
+ * <p>
+ * {@code changing} alternates between two disjoint results, so every
+ * suggestion has to be encoded. {@code unchanged} encodes the same result
+ * again, so every suggestion is sent as a reference to the previous result.
+ * </p>
+ *
+ * @author Max Schuster
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuggestionsToJsonBenchmark {
+
+    @Param({"10", "50"})
+    public int count;
+
+    @Param({"false", "true"})
+    public boolean decorated;
+
+    private BenchmarkExtension extension;
+
+    private Set<AutocompleteSuggestion> first;
+
+    private Set<AutocompleteSuggestion> second;
+
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        List<String> values = Dictionaries.createValues(count * 2, 42);
+        Resource[] icons = {
+            new ThemeResource("img/a.png"),
+            new ThemeResource("img/b.png"),
+            new ThemeResource("img/c.png")
+        };
+        first = new LinkedHashSet<AutocompleteSuggestion>();
+        second = new LinkedHashSet<AutocompleteSuggestion>();
+        for (int i = 0; i < values.size(); ++i) {
+            AutocompleteSuggestion suggestion
+                    = new AutocompleteSuggestion(values.get(i));
+            if (decorated) {
+                suggestion.setDescription("Description of " + values.get(i));
+                suggestion.setIcon(icons[i % icons.length]);
+                suggestion.addStyleName("lang");
+                suggestion.addStyleName(i % 2 == 0 ? "even" : "odd");
+            }
+            (i < count ? first : second).add(suggestion);
+        }
+        extension = new BenchmarkExtension();
+    }
+
+    @Benchmark
+    public Object changing() {
+        flip = !flip;
+        return extension.toJson(flip ? first : second);
+    }
+
+    @Benchmark
+    public Object unchanged() {
+        return extension.toJson(first);
+    }
+
+}
@@ -58,146 +58,1629 @@ function eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtens
     };
 
     var self = this,
-            fontIconPrefix = "fonticon://";
+            fontIconPrefix = "fonticon://",
+            cacheKeyPrefix = ":",
+            storageKeyPrefix = "eu.maxschuster.vaadin.autocompletetextfield.cache:",
+            saveDelay = 1000,
+            loadMoreThreshold = 20,
+            virtualBuffer = 5,
+            defaultRowHeight = 23,
+            supportsPassive = (function () {
+                var supported = false;
+                try {
+                    var options = Object.defineProperty({}, "passive", {
+                        get: function () {
+                            supported = true;
+                        }
+                    });
+                    window.addEventListener("test", null, options);
+                    window.removeEventListener("test", null, options);
+                } catch (e) {
+                    // no addEventListener or options
+                }
+                return supported;
+            })(),
+            requestFrame = window.requestAnimationFrame || function (fn) {
+                return setTimeout(fn, 16);
+            },
+            cancelFrame = window.cancelAnimationFrame || clearTimeout,
+            scrollDispatcher = getScrollDispatcher();
+
+    /**
+     * Creates a store for cached suggestions.
+     * 
+     * @param {Boolean} shared The store is shared by connectors with the same
+     * cache id.
+     * @returns {Object} The store.
+     */
+    function createCacheStore(shared) {
+        return {
+            entries: {},
+            count: 0,
+            // waiters for the queries sent by one of the connectors
+            inFlight: {},
+            // connectors using the store, see useCacheStore
+            users: [],
+            shared: !!shared,
+            version: undefined,
+            storageKey: null,
+            saveTimer: null
+        };
+    }
+
+    /**
+     * Gets the largest cache size of the connectors using the given store,
+     * so that no connector shrinks the cache of the others.
+     * 
+     * @param {Object} store
+     * @returns {Number} The cache size.
+     */
+    function getCacheLimit(store) {
+        var limit = 0,
+                i;
+        for (i = 0; i < store.users.length; i++) {
+            limit = Math.max(limit, store.users[i].cacheLimit);
+        }
+        return limit;
+    }
+
+    /**
+     * Gets the local storage of the browser.
+     * 
+     * @returns {Storage} The local storage or null if it isn't available or
+     * allowed.
+     */
+    function getStorage() {
+        try {
+            return window.localStorage || null;
+        } catch (e) {
+            return null;
+        }
+    }
+
+    /**
+     * Empties the given store and loads the entries persisted with the given
+     * version. Entries persisted with another version are removed.
+     * 
+     * @param {Object} store
+     * @param {String} cacheId
+     * @param {String} version The version or null if the store shouldn't be
+     * persisted.
+     * @returns {undefined}
+     */
+    function loadCacheStore(store, cacheId, version) {
+        var storage = version ? getStorage() : null,
+                data = null,
+                i;
+        store.entries = {};
+        store.count = 0;
+        store.version = version;
+        store.storageKey = storage ? storageKeyPrefix + cacheId : null;
+        if (!storage) {
+            return;
+        }
+        try {
+            data = JSON.parse(storage.getItem(store.storageKey));
+        } catch (e) {
+            // not available or corrupt
+        }
+        if (!data || data.version !== version || !data.entries) {
+            try {
+                storage.removeItem(store.storageKey);
+            } catch (e) {
+                // not allowed
+            }
+            return;
+        }
+        // stored from the least to the most recently used entry
+        for (i = 0; i < data.entries.length; i++) {
+            store.entries[data.entries[i][0]] = data.entries[i][1];
+            ++store.count;
+        }
+    }
+
+    /**
+     * Checks if one of the given suggestions has an icon.
+     * 
+     * @param {Array} suggestions
+     * @returns {Boolean}
+     */
+    function hasIcon(suggestions) {
+        for (var i = 0; i < suggestions.length; i++) {
+            if (suggestions[i].icon) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores the entries of the given store in the local storage a moment
+     * later, so multiple changes are written at once. Entries containing icons
+     * are skipped, because their resources are only valid for this page.
+     * 
+     * @param {Object} store
+     * @returns {undefined}
+     */
+    function saveCacheStore(store) {
+        if (!store.storageKey || store.saveTimer !== null) {
+            return;
+        }
+        store.saveTimer = setTimeout(function () {
+            var storage = getStorage(),
+                    entries = [],
+                    key;
+            store.saveTimer = null;
+            if (!storage || !store.storageKey) {
+                return;
+            }
+            for (key in store.entries) {
+                if (!store.entries.hasOwnProperty(key)) {
+                    continue;
+                }
+                if (!hasIcon(store.entries[key].suggestions)) {
+                    entries.push([key, store.entries[key]]);
+                }
+            }
+            try {
+                storage.setItem(store.storageKey, JSON.stringify({
+                    version: store.version,
+                    entries: entries
+                }));
+            } catch (e) {
+                // quota exceeded, don't keep an outdated copy
+                try {
+                    storage.removeItem(store.storageKey);
+                } catch (e2) {
+                    // not allowed
+                }
+            }
+        }, saveDelay);
+    }
+
+    /**
+     * Gets the scroll dispatcher shared by all connectors of the page. It
+     * holds a single window scroll listener, as long as there are
+     * connectors, and notifies only the connectors that have shown their
+     * suggestions since the last scroll event found them hidden.
+     * 
+     * @returns {Object} The scroll dispatcher.
+     */
+    function getScrollDispatcher() {
+        var Connector = eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtension,
+                dispatcher = Connector.scrollDispatcher;
+        if (dispatcher) {
+            return dispatcher;
+        }
+        dispatcher = Connector.scrollDispatcher = {
+            connectors: [],
+            add: function (connector) {
+                var connectors = dispatcher.connectors;
+                if (connectors.indexOf(connector) !== -1) {
+                    return;
+                }
+                connectors.push(connector);
+                if (connectors.length === 1) {
+                    connector.addEvent(window, "scroll", dispatcher.onScroll,
+                            true, true);
+                }
+            },
+            remove: function (connector) {
+                var connectors = dispatcher.connectors,
+                        index = connectors.indexOf(connector);
+                if (index === -1) {
+                    return;
+                }
+                connectors.splice(index, 1);
+                if (connectors.length === 0) {
+                    connector.removeEvent(window, "scroll", dispatcher.onScroll,
+                            true);
+                }
+            },
+            onScroll: function (ev) {
+                // connectors may remove themselves while being notified
+                var connectors = dispatcher.connectors.slice(),
+                        i;
+                for (i = 0; i < connectors.length; i++) {
+                    connectors[i].onScroll(ev);
+                }
+            }
+        };
+        return dispatcher;
+    }
+
+    this.init = function () {
+        this.lastResponseId = 0;
+        this.pendingResponses = {};
+        this.currentResponse = null;
+        this.prefetched = {};
+        this.dictionary = null;
+        this.previousSuggestions = [];
+        this.cacheHits = 0;
+        this.ownCache = createCacheStore(false);
+        this.ownInFlight = {};
+        this.cacheStore = null;
+        this.cacheLimit = 0;
+        this.virtual = null;
+        this.keyedRows = {};
+        this.renderingRows = false;
+        this.rowTemplate = null;
+        this.textField = this.findTextField();
+        this.addEvent(this.textField, "focus", this.onFocus);
+        this.addEvent(this.textField, "blur", this.onBlur);
+        // registered before autoComplete, so it can handle keys first
+        this.addEvent(this.textField, "keydown", this.onVirtualKeyDown);
+        this.popupContainer = this.findPopupContainer();
+        this.autoComplete = this.createAutoComplete(this.getConfig(this.getState()));
+        this.scrollBehavior = null;
+        this.scrollFrame = null;
+        this.queryTimer = null;
+        this.textFieldRect = null;
+    };
+
+    /**
+     * Extends and extends the parent component of this extension.
+     * @returns {Element} The parent element.
+     */
+    this.findTextField = function () {
+        var textField = this.getElement(this.getParentId());
+        return textField;
+    };
+
+    this.createAutoComplete = function (config) {
+        var autoComplete = new CustomAutoComplete(config),
+                sc = this.getSuggestionsContainer();
+        if (sc) {
+            this.addEvent(sc, "scroll", this.onSuggestionsScroll);
+        }
+        this.currentConfig = config;
+        return autoComplete;
+    };
+
+    this.findPopupContainer = function () {
+        return document.querySelector('.v-overlay-container');
+    };
+
+    this.getConfig = function (state) {
+        var menuClass = this.isArray(state.menuStyleNames) ?
+                state.menuStyleNames.join(" ") : "";
+        return {
+            selector: this.textField,
+            source: this.source,
+            // minChars, delay and cache are read from the state by source,
+            // so changing them doesn't require a new autoComplete instance
+            minChars: 1,
+            delay: 0,
+            cache: false,
+            menuClass: menuClass,
+            renderItem: this.renderItem,
+            onSelect: this.onSelect,
+            popupContainer: this.popupContainer
+        };
+    };
+
+    /**
+     * Compares two configs.
+     * 
+     * @param {Object} oldConfig
+     * @param {Object} newConfig
+     * @param {String} ignoredKey A key that isn't compared or undefined.
+     * @returns {Boolean} true if the configs are equal.
+     */
+    this.compareConfig = function (oldConfig, newConfig, ignoredKey) {
+        for (var key in oldConfig) {
+            if (key !== ignoredKey && oldConfig[key] !== newConfig[key]) {
+                return false;
+            }
+        }
+        return true;
+    };
+
+    /**
+     * Replaces the menu classes of the existing suggestions container.
+     * 
+     * @param {String} oldMenuClass Space separated classes.
+     * @param {String} newMenuClass Space separated classes.
+     * @returns {undefined}
+     */
+    this.updateMenuClass = function (oldMenuClass, newMenuClass) {
+        var sc = this.getSuggestionsContainer(),
+                classes,
+                names,
+                i;
+        if (!sc) {
+            return;
+        }
+        classes = " " + sc.className.replace(/\s+/g, " ") + " ";
+        names = oldMenuClass ? oldMenuClass.split(/\s+/) : [];
+        for (i = 0; i < names.length; i++) {
+            classes = classes.replace(" " + names[i] + " ", " ");
+        }
+        names = newMenuClass ? newMenuClass.split(/\s+/) : [];
+        for (i = 0; i < names.length; i++) {
+            if (names[i] && classes.indexOf(" " + names[i] + " ") === -1) {
+                classes += names[i] + " ";
+            }
+        }
+        sc.className = classes.replace(/^\s+|\s+$/g, "");
+    };
+
+    this.onSelect = function (event, value, item) {
+        var textField = self.textField;
+        // Fake keydown to force a text change event
+        self.triggerEvent(textField, "keydown");
+    };
+
+    this.onStateChange = function () {
+        var state = this.getState(),
+                oldConfig = this.currentConfig,
+                newConfig = this.getConfig(state),
+                autoComplete = this.autoComplete;
+        if (!this.compareConfig(oldConfig, newConfig, "menuClass")) {
+            if (typeof autoComplete === "object") {
+                autoComplete.destroy();
+            }
+            this.autoComplete = this.createAutoComplete(newConfig);
+        } else if (oldConfig.menuClass !== newConfig.menuClass) {
+            // applied to the live instance, keeps its listeners and state
+            this.updateMenuClass(oldConfig.menuClass, newConfig.menuClass);
+            this.currentConfig = newConfig;
+        }
+        this.useCacheStore(this.getCacheStore(),
+                state.cache ? state.cacheSize : 0);
+        this.invalidateRows();
+        this.setScrollBehavoir(state.scrollBehavior);
+    };
+
+    this.setScrollBehavoir = function (scrollBehavior) {
+        this.scrollBehavior = scrollBehavior;
+        this.watchScroll();
+    };
+
+    /**
+     * Registers this connector at the shared scroll dispatcher if its
+     * suggestions are visible and the scroll behavior isn't "NONE".
+     * 
+     * @returns {undefined}
+     */
+    this.watchScroll = function () {
+        var instance = this.textField.autoCompleteInstance;
+        switch (this.scrollBehavior) {
+            case "REFRESH":
+            case "CLOSE":
+                if (instance && this.autoComplete.isVisible(instance)) {
+                    scrollDispatcher.add(this);
+                }
+                break;
+            default: // including "NONE"
+                scrollDispatcher.remove(this);
+                break;
+        }
+    };
+
+    /**
+     * Called by the shared scroll dispatcher.
+     * 
+     * @param {Event} ev
+     * @returns {undefined}
+     */
+    this.onScroll = function (ev) {
+        var scrollBehavior = self.scrollBehavior,
+                autoComplete = self.autoComplete,
+                autoCompleteInstance = self.textField.autoCompleteInstance,
+                suggestionsContainer;
+        
+        if (!autoCompleteInstance ||
+                !autoComplete.isVisible(autoCompleteInstance)) {
+            // not notified again until the suggestions are shown
+            scrollDispatcher.remove(self);
+            return;
+        }
+        suggestionsContainer = autoCompleteInstance.suggestionsContainer;
+        
+        // ignore scroll events from inside the suggestionsContainer
+        var found, el = ev.target || ev.srcElement;
+        while (el && !(found = (el === suggestionsContainer))) {
+            el = el.parentElement;
+        }
+        if (found) {
+            return;
+        }
+        
+        switch (scrollBehavior) {
+            case "REFRESH":
+                // reposition at most once per animation frame
+                if (self.scrollFrame === null) {
+                    self.scrollFrame = requestFrame(self.onScrollFrame);
+                }
+                break;
+            case "CLOSE":
+                autoComplete.hide(autoCompleteInstance);
+                scrollDispatcher.remove(self);
+                break;
+            default:
+                // Do nothing
+                break;
+        }
+    };
+
+    /**
+     * Repositions the visible suggestions container after the page has been
+     * scrolled, unless the textfield hasn't moved since the container has
+     * been placed.
+     * 
+     * @returns {undefined}
+     */
+    this.onScrollFrame = function () {
+        var autoComplete = self.autoComplete,
+                autoCompleteInstance = self.textField.autoCompleteInstance,
+                last = self.textFieldRect,
+                rect;
+        self.scrollFrame = null;
+        if (self.scrollBehavior !== "REFRESH" || !autoCompleteInstance ||
+                !autoComplete.isVisible(autoCompleteInstance)) {
+            return;
+        }
+        rect = self.getTextFieldRect();
+        if (last && last.top === rect.top && last.left === rect.left &&
+                last.width === rect.width && last.height === rect.height) {
+            return; // the suggestions container is still in place
+        }
+        self.textFieldRect = rect;
+        autoComplete.updateSuggestionsContainer(autoCompleteInstance, true);
+    };
+
+    /**
+     * Gets the current position and size of the textfield.
+     * 
+     * @returns {Object} An object with top, left, width and height.
+     */
+    this.getTextFieldRect = function () {
+        var rect = this.textField.getBoundingClientRect();
+        return {
+            top: rect.top,
+            left: rect.left,
+            width: rect.width,
+            height: rect.height
+        };
+    };
+
+    /**
+     * Requests the prefetched suggestions from the server-side, if enabled.
+     * 
+     * @returns {undefined}
+     */
+    this.onFocus = function () {
+        if (self.getState().prefetchEnabled) {
+            self.prefetched = {};
+            self.serverPrefetchSuggestions(self.textField.value);
+        }
+    };
+
+    /**
+     * Reports the searches answered locally since the last query to the
+     * server-side, so they aren't lost if no further query follows.
+     * 
+     * @returns {undefined}
+     */
+    this.onBlur = function () {
+        self.reportCacheHits();
+    };
+
+    /**
+     * Sends the number of searches answered locally since the last query to
+     * the server-side metrics, if there are any.
+     * 
+     * @returns {undefined}
+     */
+    this.reportCacheHits = function () {
+        if (this.cacheHits) {
+            this.serverReportCacheHits(this.cacheHits);
+            this.cacheHits = 0;
+        }
+    };
+
+    /**
+     * Receives suggestions the server-side has queried in advance. They are
+     * kept until the user types the given term.
+     * 
+     * @param {String} term
+     * @param {Array|Object} suggestions
+     * @param {Object} options
+     * @returns {undefined}
+     */
+    this.setPrefetchedSuggestions = function (term, suggestions, options) {
+        this.prefetched[term] = {
+            suggestions: this.decodeSuggestions(suggestions),
+            hasMore: !!(options && options.hasMore)
+        };
+    };
+
+    /**
+     * Responds with prefetched suggestions for the given term, if there are
+     * any.
+     * 
+     * @param {String} term
+     * @param {Function} response
+     * @returns {Boolean} true if prefetched suggestions have been used.
+     */
+    this.respondPrefetched = function (term, response) {
+        var prefetched = this.prefetched[term];
+        if (!Object.prototype.hasOwnProperty.call(this.prefetched, term)) {
+            return false;
+        }
+        delete this.prefetched[term];
+        this.respondLocally({
+            response: response,
+            term: term,
+            suggestions: prefetched.suggestions,
+            hasMore: prefetched.hasMore
+        });
+        return true;
+    };
+
+    /**
+     * Receives the values of a collection based suggestion provider from the
+     * server-side. As long as a dictionary is set, searches are performed
+     * locally.
+     * 
+     * @param {Array} values The values or null to clear the dictionary.
+     * @param {Object} options The version and the matching options.
+     * @returns {undefined}
+     */
+    this.setDictionary = function (values, options) {
+        var dictionary = null,
+                search,
+                i;
+        if (this.isArray(values)) {
+            search = values;
+            if (options.ignoreCase) {
+                search = [];
+                for (i = 0; i < values.length; i++) {
+                    search.push(this.toLowerCase(values[i], options.locale));
+                }
+            }
+            dictionary = {
+                values: values,
+                search: search,
+                version: options.version,
+                matchMode: options.matchMode,
+                ignoreCase: !!options.ignoreCase,
+                locale: options.locale,
+                limit: options.limit,
+                paging: !!options.paging
+            };
+        }
+        this.dictionary = dictionary;
+        // results of the old dictionary or the server-side are outdated
+        this.prefetched = {};
+        this.clearAutoCompleteCache();
+    };
+
+    /**
+     * Searches the dictionary for the given term, if there is one.
+     * 
+     * @param {String} term
+     * @param {Function} response
+     * @returns {Boolean} true if the dictionary has been searched.
+     */
+    this.respondDictionary = function (term, response) {
+        var dictionary = this.dictionary,
+                search,
+                matches = [],
+                i;
+        if (!dictionary) {
+            return false;
+        }
+        search = dictionary.ignoreCase ?
+                this.toLowerCase(term, dictionary.locale) : term;
+        if (search) {
+            for (i = 0; i < dictionary.search.length; i++) {
+                if (this.matches(dictionary.search[i], search, dictionary.matchMode)) {
+                    matches.push({
+                        value: dictionary.values[i]
+                    });
+                }
+            }
+        }
+        this.respondLocally(this.createLocalPage({
+            response: response,
+            term: term,
+            matches: matches,
+            suggestions: []
+        }));
+        return true;
+    };
+
+    /**
+     * Moves the next page of local matches into the suggestions of the given
+     * pending response.
+     * 
+     * @param {Object} pending
+     * @returns {Object} The pending response.
+     */
+    this.createLocalPage = function (pending) {
+        var dictionary = this.dictionary,
+                limit = dictionary && dictionary.limit > 0 ?
+                        dictionary.limit : pending.matches.length,
+                start = pending.suggestions.length,
+                end = dictionary && (dictionary.paging || start === 0) ?
+                        start + limit : start;
+        pending.suggestions = pending.suggestions.concat(
+                pending.matches.slice(start, end));
+        pending.hasMore = !!(dictionary && dictionary.paging &&
+                pending.suggestions.length < pending.matches.length);
+        return pending;
+    };
+
+    /**
+     * Shows suggestions that are available without a round trip to the
+     * server-side.
+     * 
+     * @param {Object} pending The pending response.
+     * @returns {undefined}
+     */
+    this.respondLocally = function (pending) {
+        // invalidates the responses of older queries
+        ++this.lastResponseId;
+        this.pendingResponses = {};
+        ++this.cacheHits;
+        this.showSuggestions(pending, pending.suggestions);
+        this.currentResponse = pending;
+        if (pending.hasMore && !this.isSuggestionsContainerScrollable()) {
+            this.loadMore();
+        }
+    };
+
+    /**
+     * Answers the given term by filtering the cached suggestions of the
+     * longest shorter term it starts with, if the server-side has marked them
+     * as complete. The suggestions of a longer term can only be a subset of
+     * them.
+     * 
+     * @param {String} term
+     * @param {Function} response
+     * @returns {Boolean} true if the term has been answered locally.
+     */
+    this.respondRefined = function (term, response) {
+        var entry = null,
+                complete,
+                search,
+                suggestions = [],
+                i;
+        for (i = term.length - 1; i > 0 && !entry; i--) {
+            entry = this.getCached(term.substr(0, i));
+            if (entry && !entry.complete) {
+                entry = null;
+            }
+        }
+        if (!entry) {
+            return false;
+        }
+        complete = entry.complete;
+        search = complete.ignoreCase ?
+                this.toLowerCase(term, complete.locale) : term;
+        for (i = 0; i < entry.suggestions.length; i++) {
+            if (this.matches(complete.ignoreCase ?
+                    this.toLowerCase(entry.suggestions[i].value, complete.locale) :
+                    entry.suggestions[i].value, search, complete.matchMode)) {
+                suggestions.push(entry.suggestions[i]);
+            }
+        }
+        this.putCached(term, suggestions, false, complete);
+        this.respondLocally({
+            response: response,
+            term: term,
+            suggestions: suggestions,
+            hasMore: false
+        });
+        return true;
+    };
+
+    /**
+     * Checks if the given value matches the given term. Both have to be lower
+     * case, if the match should be case insensitive.
+     * 
+     * @param {String} value
+     * @param {String} term
+     * @param {String} matchMode "BEGINS" or "CONTAINS".
+     * @returns {Boolean}
+     */
+    this.matches = function (value, term, matchMode) {
+        if (typeof value !== "string") {
+            return false;
+        }
+        switch (matchMode) {
+            case "CONTAINS":
+                return value.indexOf(term) !== -1;
+            default: // including "BEGINS"
+                return value.indexOf(term) === 0;
+        }
+    };
+
+    /**
+     * Converts the given value to lower case using the given locale, if the
+     * browser supports it.
+     * 
+     * @param {String} value
+     * @param {String} locale A language tag like "de-DE".
+     * @returns {String}
+     */
+    this.toLowerCase = function (value, locale) {
+        if (typeof value !== "string") {
+            return value;
+        }
+        try {
+            return value.toLocaleLowerCase(locale);
+        } catch (e) {
+            // unsupported locale
+            return value.toLowerCase();
+        }
+    };
+
+    /**
+     * Removes all searches cached by the connector and the autoComplete
+     * instance.
+     * 
+     * @returns {undefined}
+     */
+    this.clearAutoCompleteCache = function () {
+        var instance = this.textField.autoCompleteInstance;
+        if (instance && typeof instance.cache === "object") {
+            instance.cache = {};
+        }
+        var store = this.getCacheStore();
+        store.entries = {};
+        store.count = 0;
+        saveCacheStore(store);
+    };
+
+    /**
+     * Gets the store of the cached suggestions. Connectors with the same
+     * cache id and cache version share a store, which is persisted if there
+     * is a cache version.
+     * 
+     * @returns {Object} The store.
+     */
+    this.getCacheStore = function () {
+        var Connector = eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtension,
+                state = this.getState(),
+                cacheId = state.cacheId,
+                version = state.cacheVersion || null,
+                stores,
+                store,
+                key;
+        if (!cacheId) {
+            return this.ownCache;
+        }
+        stores = Connector.sharedCaches || (Connector.sharedCaches = {});
+        // different versions hold different suggestions, so never share them
+        key = cacheKeyPrefix + cacheId + "/" + (version || "");
+        if (!Object.prototype.hasOwnProperty.call(stores, key)) {
+            store = stores[key] = createCacheStore(true);
+            loadCacheStore(store, cacheId, version);
+        }
+        return stores[key];
+    };
+
+    /**
+     * Gets the cached suggestions of the given term and marks them as the
+     * most recently used ones.
+     * 
+     * The cache relies on the insertion order of object keys, which are
+     * prefixed so that no term looks like an array index.
+     * 
+     * @param {String} term
+     * @returns {Object} The cache entry or null if there is none or it has
+     * expired.
+     */
+    this.getCached = function (term) {
+        var store = this.getCacheStore(),
+                cache = store.entries,
+                key = cacheKeyPrefix + term,
+                ttl = this.getState().cacheTtl,
+                entry;
+        if (!Object.prototype.hasOwnProperty.call(cache, key)) {
+            return null;
+        }
+        entry = cache[key];
+        delete cache[key];
+        if (ttl > 0 && new Date().getTime() - entry.time > ttl) {
+            --store.count;
+            return null;
+        }
+        cache[key] = entry; // move to the end
+        return entry;
+    };
+
+    /**
+     * Caches the suggestions of the given term and removes the least recently
+     * used terms beyond the cache size.
+     * 
+     * @param {String} term
+     * @param {Array} suggestions
+     * @param {Boolean} hasMore
+     * @param {Object} complete The matching options if the suggestions are
+     * all the server-side has for the term, otherwise null.
+     * @returns {undefined}
+     */
+    this.putCached = function (term, suggestions, hasMore, complete) {
+        var state = this.getState(),
+                store = this.getCacheStore(),
+                cache = store.entries,
+                key = cacheKeyPrefix + term,
+                time = new Date().getTime();
+        if (!state.cache) {
+            return;
+        }
+        if (Object.prototype.hasOwnProperty.call(cache, key)) {
+            // further pages don't extend the lifetime of the first one
+            time = cache[key].time;
+            delete cache[key];
+        } else {
+            ++store.count;
+        }
+        cache[key] = {
+            suggestions: suggestions,
+            hasMore: hasMore,
+            complete: complete || null,
+            time: time
+        };
+        this.useCacheStore(store, state.cacheSize);
+        saveCacheStore(store);
+    };
+
+    /**
+     * Registers this connector as user of the given store with the given
+     * cache size and leaves the store it has used before. The store is
+     * trimmed to the largest size of its users, so disabling or shrinking
+     * the cache of one connector doesn't empty a store shared by others.
+     * 
+     * @param {Object} store
+     * @param {Number} size The cache size, 0 if caching is disabled.
+     * @returns {undefined}
+     */
+    this.useCacheStore = function (store, size) {
+        if (this.cacheStore !== store) {
+            this.leaveCacheStore();
+            store.users.push(this);
+            this.cacheStore = store;
+        }
+        this.cacheLimit = size;
+        this.trimCache(getCacheLimit(store));
+    };
+
+    /**
+     * Removes this connector from the users of its store. The entries are
+     * kept for the remaining users.
+     * 
+     * @returns {undefined}
+     */
+    this.leaveCacheStore = function () {
+        var store = this.cacheStore,
+                index;
+        if (store) {
+            index = store.users.indexOf(this);
+            if (index !== -1) {
+                store.users.splice(index, 1);
+            }
+            this.cacheStore = null;
+        }
+    };
+
+    /**
+     * Removes the least recently used terms until at most the given number of
+     * terms is cached.
+     * 
+     * @param {Number} size
+     * @returns {undefined}
+     */
+    this.trimCache = function (size) {
+        var store = this.getCacheStore(),
+                cache = store.entries,
+                key;
+        for (key in cache) {
+            if (store.count <= size) {
+                break;
+            }
+            if (Object.prototype.hasOwnProperty.call(cache, key)) {
+                delete cache[key];
+                --store.count;
+            }
+        }
+    };
+
+    /**
+     * Responds with cached suggestions for the given term, if there are any.
+     * 
+     * @param {String} term
+     * @param {Function} response
+     * @returns {Boolean} true if cached suggestions have been used.
+     */
+    this.respondCached = function (term, response) {
+        var entry = this.getState().cache ? this.getCached(term) : null;
+        if (!entry) {
+            return this.respondRefined(term, response);
+        }
+        this.respondLocally({
+            response: response,
+            term: term,
+            suggestions: entry.suggestions,
+            hasMore: entry.hasMore
+        });
+        return true;
+    };
+
+    this.onUnregister = function () {
+        this.reportCacheHits();
+        this.removeEvent(this.textField, "focus", this.onFocus);
+        this.removeEvent(this.textField, "blur", this.onBlur);
+        this.removeEvent(this.textField, "keydown", this.onVirtualKeyDown);
+        this.virtual = null;
+        this.autoComplete.destroy();
+        this.pendingResponses = {};
+        this.currentResponse = null;
+        scrollDispatcher.remove(this);
+        if (this.scrollFrame !== null) {
+            cancelFrame(this.scrollFrame);
+            this.scrollFrame = null;
+        }
+        if (this.queryTimer !== null) {
+            clearTimeout(this.queryTimer);
+            this.queryTimer = null;
+        }
+        for (var responseId in this.ownInFlight) {
+            if (this.ownInFlight.hasOwnProperty(responseId)) {
+                this.settleInFlight(responseId, null);
+            }
+        }
+        this.leaveCacheStore();
+    };
+
+    /**
+     * Receives suggestions from the server-side.
+     * 
+     * If options.next is set, the server-side has more suggestions for this
+     * request in a later stage. The suggestions of all stages get merged into
+     * the menu and the next stage is requested immediately.
+     * 
+     * Responses to queries that have been superseded by a newer one are
+     * dropped without rendering them.
+     * 
+     * @param {Number} responseId
+     * @param {Array|Object} suggestions
+     * @param {Object} options
+     * @returns {undefined}
+     */
+    this.setSuggestions = function (responseId, suggestions, options) {
+        suggestions = this.decodeSuggestions(suggestions);
+        var pendingResponses = this.pendingResponses,
+                pending = pendingResponses[responseId],
+                next = options && typeof options.next === "number" ?
+                        options.next : -1;
+        if (typeof pending !== "object") {
+            // superseded by a newer query, waiting connectors query themselves
+            this.settleInFlight(responseId, null);
+            return;
+        }
+        if (responseId !== this.lastResponseId) {
+            // out of order, the menu already belongs to a newer query
+            pending.loading = false;
+            delete pendingResponses[responseId];
+            this.settleInFlight(responseId, null);
+            return;
+        }
+        if (options && typeof options.retryAfter === "number") {
+            // rejected by the rate limiter of the server-side
+            this.retryQuery(responseId, pending, options.retryAfter);
+            return;
+        }
+        pending.loading = false;
+        pending.hasMore = !!(options && options.hasMore);
+        pending.complete = options && options.complete || null;
+        if (pending.suggestions) {
+            // merge with the suggestions of the previous stages or pages
+            suggestions = pending.suggestions.concat(suggestions);
+            pending.suggestions = suggestions;
+            this.preserveScrollTop(function () {
+                self.showSuggestions(pending, suggestions);
+            });
+        } else {
+            pending.suggestions = suggestions;
+            this.showSuggestions(pending, suggestions);
+        }
+        if (next >= 0) {
+            this.sendQuery(responseId, pending, {
+                stage: next
+            });
+        } else {
+            delete pendingResponses[responseId];
+            this.putCached(pending.term, pending.suggestions, pending.hasMore,
+                    pending.complete);
+            this.settleInFlight(responseId, {
+                suggestions: pending.suggestions,
+                hasMore: pending.hasMore
+            });
+        }
+        this.currentResponse = pending;
+        if (pending.hasMore && !this.isSuggestionsContainerScrollable()) {
+            // the menu can't be scrolled to its end, load more right away
+            this.loadMore();
+        }
+    };
+
+    /**
+     * Decodes the suggestions sent by the server-side. They are either encoded
+     * column by column or, in the legacy format, as an array of objects.
+     * 
+     * The column encoding may reference suggestions of the previously decoded
+     * result by their position. Every column encoded result has to be decoded
+     * in the order it has been sent, even if it isn't needed anymore, because
+     * it is the base of the next one.
+     * 
+     * @param {Array|Object} data
+     * @returns {Array} The suggestions.
+     */
+    this.decodeSuggestions = function (data) {
+        if (!data) {
+            return [];
+        } else if (this.isArray(data)) {
+            return data;
+        }
+        var values = data.value || [],
+                descriptions = data.description,
+                icons = data.icon,
+                styleNames = data.styleNames,
+                styles = data.styles || [],
+                suggestions = new Array(values.length),
+                indexes,
+                names,
+                i,
+                j;
+        for (i = 0; i < values.length; i++) {
+            indexes = styleNames ? styleNames[i] : null;
+            names = null;
+            if (indexes) {
+                names = new Array(indexes.length);
+                for (j = 0; j < indexes.length; j++) {
+                    names[j] = styles[indexes[j]];
+                }
+            }
+            suggestions[i] = {
+                value: values[i],
+                description: descriptions ? descriptions[i] : null,
+                icon: icons ? icons[i] : null,
+                styleNames: names
+            };
+        }
+        if (data.ref) {
+            suggestions = this.resolveReferences(data.ref, suggestions);
+        }
+        this.previousSuggestions = suggestions;
+        return suggestions;
+    };
 
-    this.init = function () {
-        this.lastResponseId = 0;
+    /**
+     * Rebuilds a result from references to the previous result and the newly
+     * sent suggestions.
+     * 
+     * @param {Array} refs Positions in the previous result, -1 for the next
+     * new suggestion.
+     * @param {Array} added The newly sent suggestions.
+     * @returns {Array} The suggestions.
+     */
+    this.resolveReferences = function (refs, added) {
+        var previous = this.previousSuggestions,
+                suggestions = [],
+                next = 0,
+                suggestion,
+                i;
+        for (i = 0; i < refs.length; i++) {
+            suggestion = refs[i] >= 0 ? previous[refs[i]] : added[next++];
+            if (suggestion) {
+                suggestions.push(suggestion);
+            }
+        }
+        return suggestions;
+    };
+
+    /**
+     * Requests the next page of suggestions for the current term, if the
+     * server-side has told that there are more.
+     * 
+     * @returns {undefined}
+     */
+    this.loadMore = function () {
+        var current = this.currentResponse,
+                responseId;
+        if (!current || !current.hasMore || current.loading) {
+            return;
+        }
+        if (current.matches) {
+            // page through the matches of the dictionary
+            this.createLocalPage(current);
+            this.preserveScrollTop(function () {
+                self.showSuggestions(current, current.suggestions);
+            });
+            return;
+        }
+        current.loading = true;
+        responseId = this.addPendingResponse(current);
+        this.sendQuery(responseId, current, {
+            offset: current.suggestions.length
+        });
+    };
+
+    /**
+     * Registers the given pending response as the only outstanding query.
+     * Older queries are forgotten, so the table can't grow and their
+     * responses get dropped.
+     * 
+     * @param {Object} pending The pending response.
+     * @returns {Number} The response id of the query.
+     */
+    this.addPendingResponse = function (pending) {
+        var responseId = ++this.lastResponseId;
         this.pendingResponses = {};
-        this.textField = this.findTextField();
-        this.popupContainer = this.findPopupContainer();
-        this.autoComplete = this.createAutoComplete(this.getConfig(this.getState()));
-        this.scrollBehavior = null;
-        this.scrollListener = false;
+        this.pendingResponses[responseId] = pending;
+        return responseId;
     };
 
     /**
-     * Extends and extends the parent component of this extension.
-     * @returns {Element} The parent element.
+     * Sends a query to the server-side.
+     * 
+     * @param {Number} responseId
+     * @param {Object} pending The pending response.
+     * @param {Object} options The query options or undefined.
+     * @returns {undefined}
      */
-    this.findTextField = function () {
-        var textField = this.getElement(this.getParentId());
-        return textField;
+    this.sendQuery = function (responseId, pending, options) {
+        var queryOptions = {},
+                key;
+        pending.options = options;
+        for (key in options) {
+            if (options.hasOwnProperty(key)) {
+                queryOptions[key] = options[key];
+            }
+        }
+        if (this.cacheHits) {
+            // piggyback the searches answered locally for the metrics
+            queryOptions.cacheHits = this.cacheHits;
+            this.cacheHits = 0;
+        }
+        this.serverQuerySuggestions(responseId, pending.term, queryOptions);
     };
 
-    this.createAutoComplete = function (config) {
-        var autoComplete = new CustomAutoComplete(config);
-        this.currentConfig = config;
-        return autoComplete;
+    /**
+     * Sends a query rejected by the server-side again after the given delay,
+     * unless a newer query has been sent in the meantime.
+     * 
+     * @param {Number} responseId
+     * @param {Object} pending The pending response.
+     * @param {Number} delay Delay in milliseconds.
+     * @returns {undefined}
+     */
+    this.retryQuery = function (responseId, pending, delay) {
+        setTimeout(function () {
+            if (responseId === self.lastResponseId &&
+                    self.pendingResponses[responseId] === pending) {
+                self.sendQuery(responseId, pending, pending.options);
+            } else {
+                pending.loading = false;
+                delete self.pendingResponses[responseId];
+                self.settleInFlight(responseId, null);
+            }
+        }, delay);
     };
 
-    this.findPopupContainer = function () {
-        return document.querySelector('.v-overlay-container');
+    /**
+     * Passes the result of a query to the connectors sharing the cache that
+     * are waiting for it.
+     * 
+     * @param {Number} responseId
+     * @param {Object} result The suggestions and hasMore or null if the
+     * waiting connectors have to query themselves.
+     * @returns {undefined}
+     */
+    this.settleInFlight = function (responseId, result) {
+        var flight = this.ownInFlight[responseId],
+                waiters,
+                i;
+        if (!flight) {
+            return;
+        }
+        delete this.ownInFlight[responseId];
+        waiters = flight.store.inFlight[flight.key];
+        delete flight.store.inFlight[flight.key];
+        for (i = 0; waiters && i < waiters.length; i++) {
+            waiters[i](result);
+        }
     };
 
-    this.getConfig = function (state) {
-        var menuClass = this.isArray(state.menuStyleNames) ?
-                state.menuStyleNames.join(" ") : "";
-        return {
-            selector: this.textField,
-            source: this.source,
-            minChars: state.minChars,
-            delay: state.delay,
-            cache: state.cache,
-            menuClass: menuClass,
-            renderItem: this.renderItem,
-            onSelect: this.onSelect,
-            popupContainer: this.popupContainer
-        };
+    /**
+     * Loads the next page when the suggestions container is scrolled to its
+     * end.
+     * 
+     * @returns {undefined}
+     */
+    this.onSuggestionsScroll = function () {
+        var sc = self.getSuggestionsContainer();
+        if (sc && self.virtual) {
+            self.updateVirtualRows();
+        }
+        if (sc && sc.scrollTop + sc.clientHeight >=
+                sc.scrollHeight - loadMoreThreshold) {
+            self.loadMore();
+        }
     };
 
-    this.compareConfig = function (oldConfig, newConfig) {
-        for (var key in oldConfig) {
-            if (oldConfig[key] !== newConfig[key]) {
-                return false;
-            }
+    /**
+     * Checks if the visible suggestions container has a scrollbar.
+     * 
+     * @returns {Boolean}
+     */
+    this.isSuggestionsContainerScrollable = function () {
+        var sc = this.getSuggestionsContainer();
+        if (!sc || !this.autoComplete ||
+                !this.autoComplete.isVisible(this.textField.autoCompleteInstance)) {
+            return true;
         }
-        return true;
+        return sc.scrollHeight > sc.clientHeight;
     };
 
-    this.onSelect = function (event, value, item) {
-        var textField = self.textField;
-        // Fake keydown to force a text change event
-        self.triggerEvent(textField, "keydown");
+    /**
+     * Calls the given function and restores the scroll position of the
+     * suggestions container afterwards.
+     * 
+     * @param {Function} fn
+     * @returns {undefined}
+     */
+    this.preserveScrollTop = function (fn) {
+        var sc = this.getSuggestionsContainer(),
+                scrollTop = sc ? sc.scrollTop : 0;
+        fn();
+        if (sc && scrollTop) {
+            sc.scrollTop = scrollTop;
+            if (this.virtual) {
+                this.updateVirtualRows();
+            }
+        }
     };
 
-    this.onStateChange = function () {
+    /**
+     * Passes the given suggestions to the autoComplete instance. Results with
+     * more suggestions than the virtual rendering threshold are rendered
+     * virtually afterwards. With template rendering, the rows of the other
+     * results are added afterwards as well.
+     * 
+     * @param {Object} pending The pending response.
+     * @param {Array} suggestions
+     * @returns {undefined}
+     */
+    this.showSuggestions = function (pending, suggestions) {
         var state = this.getState(),
-                oldConfig = this.currentConfig,
-                newConfig = this.getConfig(state),
-                autoComplete = this.autoComplete;
-        if (!this.compareConfig(oldConfig, newConfig)) {
-            if (typeof autoComplete === "object") {
-                autoComplete.destroy();
+                threshold = state.virtualRenderingThreshold,
+                virtual = this.virtual,
+                instance;
+        if (threshold > 0 && suggestions.length > threshold) {
+            if (!virtual || virtual.pending !== pending) {
+                virtual = this.virtual = {
+                    pending: pending,
+                    selected: -1,
+                    spacer: virtual ? virtual.spacer : null,
+                    rows: virtual ? virtual.rows : [],
+                    rowHeight: virtual ? virtual.rowHeight : 0
+                };
             }
-            this.autoComplete = this.createAutoComplete(newConfig);
+            virtual.suggestions = suggestions;
+        } else {
+            this.virtual = null;
         }
-        this.setScrollBehavoir(state.scrollBehavior);
+        if (!this.virtual && !state.templateRenderingEnabled) {
+            this.keyedRows = {};
+            pending.response(suggestions);
+        } else {
+            // renderItem renders nothing while renderingRows is set
+            this.renderingRows = true;
+            pending.response(suggestions);
+            this.renderingRows = false;
+            if (this.virtual) {
+                this.renderVirtual();
+            } else {
+                this.renderKeyed(suggestions);
+            }
+        }
+        // autoComplete has just placed the container next to the textfield
+        instance = this.textField.autoCompleteInstance;
+        this.textFieldRect = instance && this.autoComplete.isVisible(instance) ?
+                this.getTextFieldRect() : null;
+        this.watchScroll();
     };
 
-    this.setScrollBehavoir = function (scrollBehavior) {
-        switch (scrollBehavior) {
-            case "REFRESH":
-            case "CLOSE":
-                if (!this.scrollListener) {
-                    this.addEvent(window, "scroll", this.onScroll, true);
-                    this.scrollListener = true;
-                }
-                break;
-            default: // including "NONE"
-                if (this.scrollListener) {
-                    this.removeEvent(window, "scroll", this.onScroll, true);
-                    this.scrollListener = false;
-                }
-                break;
+    /**
+     * Adds a row for every suggestion to the suggestions container. Rows of
+     * the previous result are reused for suggestions with the same value and
+     * only updated if the suggestion has changed.
+     * 
+     * @param {Array} suggestions
+     * @returns {undefined}
+     */
+    this.renderKeyed = function (suggestions) {
+        var sc = this.getSuggestionsContainer(),
+                previous = this.keyedRows,
+                keyedRows = {},
+                fragment = document.createDocumentFragment(),
+                key,
+                row,
+                i;
+        if (!sc) {
+            return;
         }
-        this.scrollBehavior = scrollBehavior;
+        for (i = 0; i < suggestions.length; i++) {
+            key = cacheKeyPrefix + suggestions[i].value;
+            row = Object.prototype.hasOwnProperty.call(previous, key) ?
+                    previous[key] : null;
+            if (!row || Object.prototype.hasOwnProperty.call(keyedRows, key)) {
+                row = this.createRow(); // new or duplicate value
+            }
+            if (row.item && this.isSameItem(row.item, suggestions[i])) {
+                row.className = row.baseClassName; // drop "selected"
+            } else {
+                this.updateRow(row, suggestions[i], false);
+            }
+            if (!Object.prototype.hasOwnProperty.call(keyedRows, key)) {
+                keyedRows[key] = row;
+            }
+            fragment.appendChild(row);
+        }
+        sc.appendChild(fragment);
+        this.keyedRows = keyedRows;
     };
 
-    this.onScroll = function (ev) {
-        var scrollBehavior = self.scrollBehavior,
-                autoComplete = self.autoComplete,
-                autoCompleteInstance = self.textField.autoCompleteInstance,
-                suggestionsContainer = autoCompleteInstance.suggestionsContainer;
-        
-        if (!autoComplete.isVisible(autoCompleteInstance)) {
+    /**
+     * Forces the content of reused rows to be updated, e.g. because the
+     * rendering options have changed.
+     * 
+     * @returns {undefined}
+     */
+    this.invalidateRows = function () {
+        var rows = this.virtual ? this.virtual.rows : [],
+                i;
+        this.keyedRows = {};
+        for (i = 0; i < rows.length; i++) {
+            rows[i].item = null;
+        }
+    };
+
+    /**
+     * Checks if two suggestions are rendered the same way.
+     * 
+     * @param {Object} a
+     * @param {Object} b
+     * @returns {Boolean}
+     */
+    this.isSameItem = function (a, b) {
+        if (a === b) {
+            return true;
+        }
+        return a.value === b.value &&
+                (a.description || null) === (b.description || null) &&
+                (a.icon || null) === (b.icon || null) &&
+                String(a.styleNames || "") === String(b.styleNames || "");
+    };
+
+    /**
+     * Adds the spacer containing the recycled rows to the suggestions
+     * container and renders the visible rows.
+     * 
+     * @returns {undefined}
+     */
+    this.renderVirtual = function () {
+        var virtual = this.virtual,
+                sc = this.getSuggestionsContainer(),
+                spacer = virtual.spacer;
+        if (!sc) {
             return;
         }
-        
-        // ignore scroll events from inside the suggestionsContainer
-        var found, el = ev.target || ev.srcElement;
-        while (el && !(found = (el === suggestionsContainer))) {
-            el = el.parentElement;
+        if (!spacer) {
+            spacer = virtual.spacer = document.createElement("div");
+            spacer.className = "autocomplete-suggestions-spacer";
         }
-        if (found) {
+        if (spacer.parentNode !== sc) {
+            sc.appendChild(spacer);
+        }
+        this.updateVirtualRows();
+    };
+
+    /**
+     * Positions the recycled rows over the visible suggestions plus a small
+     * buffer and updates their content in place. All rows get the height of
+     * the tallest row seen so far.
+     * 
+     * @returns {undefined}
+     */
+    this.updateVirtualRows = function () {
+        var virtual = this.virtual,
+                sc = this.getSuggestionsContainer(),
+                suggestions = virtual.suggestions,
+                rows = virtual.rows,
+                rowHeight = virtual.rowHeight || defaultRowHeight,
+                first = Math.max(0, Math.floor(sc.scrollTop / rowHeight) -
+                        virtualBuffer),
+                last = Math.min(suggestions.length, Math.ceil(
+                        (sc.scrollTop + (sc.clientHeight || rowHeight)) /
+                        rowHeight) + virtualBuffer),
+                tallest = 0,
+                row,
+                i;
+        for (i = 0; i < last - first; i++) {
+            row = rows[i];
+            if (!row) {
+                row = rows[i] = this.createRow();
+            }
+            if (row.parentNode !== virtual.spacer) {
+                virtual.spacer.appendChild(row);
+            }
+            this.updateVirtualRow(row, suggestions[first + i], first + i);
+            tallest = Math.max(tallest, row.scrollHeight);
+        }
+        for (; i < rows.length; i++) {
+            // unused rows stay in the pool
+            rows[i].style.display = "none";
+        }
+        if (tallest > virtual.rowHeight) {
+            // rows are taller than assumed, lay them out again
+            virtual.rowHeight = tallest;
+            this.updateVirtualRows();
             return;
         }
-        
-        switch (scrollBehavior) {
-            case "REFRESH":
-                autoComplete.updateSuggestionsContainer(autoCompleteInstance, true);
-                break;
-            case "CLOSE":
-                autoComplete.hide(autoCompleteInstance);
-                break;
-            default:
-                // Do nothing
-                break;
+        virtual.spacer.style.height = suggestions.length * rowHeight + "px";
+    };
+
+    /**
+     * Creates a row with the same structure as the one of renderItem by
+     * cloning a template that is built once.
+     * 
+     * @returns {Element}
+     */
+    this.createRow = function () {
+        var itemClass = "autocomplete-suggestion",
+                template = this.rowTemplate,
+                row;
+        if (!template) {
+            template = this.rowTemplate = document.createElement("div");
+            template.innerHTML = '<div class="' + itemClass + '-content">' +
+                    '<div class="' + itemClass + '-icon"></div>' +
+                    '<div class="' + itemClass + '-text">' +
+                    '<div class="' + itemClass + '-value"><span></span></div>' +
+                    '<div class="' + itemClass + '-description"><span></span></div>' +
+                    '</div></div>';
         }
+        row = template.cloneNode(true);
+        row.iconCell = row.firstChild.firstChild;
+        row.valueSpan = row.iconCell.nextSibling.firstChild.firstChild;
+        row.descriptionCell = row.iconCell.nextSibling.lastChild;
+        row.icon = null;
+        row.item = null;
+        return row;
     };
 
-    this.onUnregister = function () {
-        this.autoComplete.destroy();
-        if (this.scrollListener) {
-            this.removeEvent(window, "scroll", this.onScroll, true);
+    /**
+     * Moves a recycled row to the given index and updates its content if it
+     * shows another suggestion.
+     * 
+     * @param {Element} row
+     * @param {Object} item The suggestion.
+     * @param {Number} index The index of the suggestion.
+     * @returns {undefined}
+     */
+    this.updateVirtualRow = function (row, item, index) {
+        var virtual = this.virtual,
+                selected = index === virtual.selected;
+        if (row.item !== item) {
+            this.updateRow(row, item, selected);
+        } else {
+            row.className = selected ?
+                    row.baseClassName + " selected" : row.baseClassName;
         }
+        row.style.display = "";
+        row.style.top = index * (virtual.rowHeight || defaultRowHeight) + "px";
+        row.style.height = virtual.rowHeight ? virtual.rowHeight + "px" : "";
     };
 
-    this.setSuggestions = function (responseId, suggestions) {
-        var pendingResponses = this.pendingResponses;
-        if (typeof pendingResponses[responseId] === "function") {
-            pendingResponses[responseId](suggestions);
-            delete pendingResponses[responseId];
+    /**
+     * Updates a row in place to show the given suggestion.
+     * 
+     * @param {Element} row
+     * @param {Object} item The suggestion.
+     * @param {Boolean} selected
+     * @returns {undefined}
+     */
+    this.updateRow = function (row, item, selected) {
+        var formatted = this.formatItem(item);
+        row.item = item;
+        row.baseClassName = formatted.classes.join(" ");
+        row.className = selected ?
+                row.baseClassName + " selected" : row.baseClassName;
+        row.setAttribute("data-val", item.value);
+        row.valueSpan.innerHTML = formatted.value;
+        row.descriptionCell.style.display = formatted.description ? "" : "none";
+        row.descriptionCell.firstChild.innerHTML = formatted.description || "";
+        if (row.icon !== item.icon) {
+            // icons are only replaced when they change
+            row.icon = item.icon;
+            row.iconCell.innerHTML = item.icon ? this.getIconHtml(item.icon) : "";
         }
+        row.iconCell.style.display = item.icon ? "" : "none";
+    };
+
+    /**
+     * Moves the selection of the virtually rendered suggestions with the
+     * arrow keys and selects a suggestion with enter. autoComplete can't do
+     * this itself, because it only knows the recycled rows.
+     * 
+     * @param {Event} ev
+     * @returns {undefined}
+     */
+    this.onVirtualKeyDown = function (ev) {
+        var virtual = self.virtual,
+                key = ev.keyCode,
+                instance = self.textField.autoCompleteInstance,
+                selected;
+        if (!virtual || !instance || !self.autoComplete.isVisible(instance)) {
+            return;
+        }
+        if (key === 40 || key === 38) {
+            selected = Math.min(virtual.suggestions.length - 1,
+                    virtual.selected + (key === 40 ? 1 : -1));
+            self.selectVirtual(Math.max(-1, selected));
+        } else if (key === 13 && virtual.selected >= 0) {
+            self.textField.value = virtual.suggestions[virtual.selected].value;
+            self.autoComplete.hide(instance);
+            self.onSelect(ev, self.textField.value);
+        } else {
+            return; // handled by autoComplete
+        }
+        if (ev.preventDefault) {
+            ev.preventDefault();
+        }
+        if (ev.stopImmediatePropagation) {
+            ev.stopImmediatePropagation();
+        }
+    };
+
+    /**
+     * Selects the virtually rendered suggestion with the given index, shows
+     * its value in the textfield and scrolls it into view.
+     * 
+     * @param {Number} index The index or -1 to restore the search term.
+     * @returns {undefined}
+     */
+    this.selectVirtual = function (index) {
+        var virtual = this.virtual,
+                sc = this.getSuggestionsContainer(),
+                rowHeight = virtual.rowHeight || defaultRowHeight,
+                top = index * rowHeight;
+        virtual.selected = index;
+        this.textField.value = index >= 0 ?
+                virtual.suggestions[index].value : virtual.pending.term;
+        if (index >= 0 && top < sc.scrollTop) {
+            sc.scrollTop = top;
+        } else if (index >= 0 &&
+                top + rowHeight > sc.scrollTop + sc.clientHeight) {
+            sc.scrollTop = top + rowHeight - sc.clientHeight;
+        }
+        this.updateVirtualRows();
+    };
+
+    /**
+     * Gets the suggestions container of the autoComplete instance.
+     * 
+     * @returns {Element} The suggestions container or null.
+     */
+    this.getSuggestionsContainer = function () {
+        var instance = this.textField.autoCompleteInstance;
+        return instance ? instance.suggestionsContainer : null;
     };
 
     /**
@@ -224,11 +1707,16 @@ function eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtens
      * @param {string} type
      * @param {Function} fn
      * @param {Boolean} useCapture
+     * @param {Boolean} passive The listener never calls preventDefault, used
+     * if the browser supports it.
      * @returns {undefined}
      */
-    this.addEvent = function (ob, type, fn, useCapture) {
+    this.addEvent = function (ob, type, fn, useCapture, passive) {
         if (ob.addEventListener) {
-            ob.addEventListener(type, fn, useCapture || false);
+            ob.addEventListener(type, fn, passive && supportsPassive ? {
+                capture: useCapture || false,
+                passive: true
+            } : useCapture || false);
         } else if (ob.attachEvent) {
             ob.attachEvent('on' + type, fn);
         }
@@ -260,25 +1748,114 @@ function eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtens
         }
     };
 
+    /**
+     * Called by autoComplete on every change of the search term. Terms
+     * shorter than minChars hide the suggestions. Searches that can be
+     * answered locally are answered right away, all others are sent to the
+     * server-side after the delay, unless the term changes in the meantime.
+     * 
+     * @param {String} term
+     * @param {Function} response
+     * @returns {undefined}
+     */
     this.source = function (term, response) {
-        var responseId = ++self.lastResponseId;
-        response.term = term;
-        self.serverQuerySuggestions(responseId, term);
-        self.pendingResponses[responseId] = response;
+        var state = self.getState();
+        if (self.queryTimer !== null) {
+            clearTimeout(self.queryTimer);
+            self.queryTimer = null;
+        }
+        if (term.length < state.minChars) {
+            // invalidates the responses of older queries
+            ++self.lastResponseId;
+            self.pendingResponses = {};
+            response([]);
+            return;
+        }
+        if (self.respondDictionary(term, response) ||
+                self.respondCached(term, response) ||
+                self.respondPrefetched(term, response)) {
+            return;
+        }
+        if (state.delay > 0) {
+            self.queryTimer = setTimeout(function () {
+                self.queryTimer = null;
+                self.query(term, response);
+            }, state.delay);
+        } else {
+            self.query(term, response);
+        }
     };
 
-    this.renderItem = function (item, search) {
+    /**
+     * Sends a new query for the given term to the server-side.
+     * 
+     * @param {String} term
+     * @param {Function} response
+     * @returns {undefined}
+     */
+    this.query = function (term, response) {
+        var store = self.getCacheStore(),
+                key = cacheKeyPrefix + term,
+                waiters = store.shared &&
+                        Object.prototype.hasOwnProperty.call(store.inFlight, key) ?
+                        store.inFlight[key] : null,
+                pending,
+                responseId;
+        if (waiters) {
+            // a connector sharing the cache is already querying the term
+            responseId = ++self.lastResponseId;
+            self.pendingResponses = {};
+            waiters.push(function (result) {
+                if (responseId !== self.lastResponseId) {
+                    return; // superseded by a newer query
+                } else if (result) {
+                    self.respondLocally({
+                        response: response,
+                        term: term,
+                        suggestions: result.suggestions,
+                        hasMore: result.hasMore
+                    });
+                } else {
+                    self.query(term, response);
+                }
+            });
+            return;
+        }
+        // autoComplete passes the same response function to every call, so
+        // the request specific data is kept in a separate object.
+        pending = {
+            response: response,
+            term: term,
+            suggestions: null
+        };
+        responseId = self.addPendingResponse(pending);
+        if (store.shared) {
+            store.inFlight[key] = [];
+            self.ownInFlight[responseId] = {
+                store: store,
+                key: key
+            };
+        }
+        self.sendQuery(responseId, pending);
+    };
+
+    /**
+     * Prepares the value, the description and the classes of a suggestion for
+     * rendering.
+     * 
+     * @param {Object} item The suggestion.
+     * @returns {Object} The value and description HTML and the classes.
+     */
+    this.formatItem = function (item) {
         var escape = self.getState().itemsAsHtml,
-                valueEscaped = self.escapeHtml(item.value),
                 value = item.value,
                 description = item.description,
-                icon = item.icon,
                 itemClass = 'autocomplete-suggestion',
                 classes = [itemClass],
                 styleNames = item.styleNames;
 
         if (escape) {
-            value = valueEscaped;
+            value = self.escapeHtml(value);
             description = self.escapeHtml(description);
         }
 
@@ -286,7 +1863,7 @@ function eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtens
             classes.push('has-description');
         }
 
-        if (icon) {
+        if (item.icon) {
             classes.push('has-icon');
         }
 
@@ -295,6 +1872,25 @@ function eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtens
             classes.push.apply(classes, styleNames);
         }
 
+        return {
+            value: value,
+            description: description,
+            classes: classes
+        };
+    };
+
+    this.renderItem = function (item, search) {
+        if (self.renderingRows) {
+            return ""; // rendered by renderVirtual or renderKeyed
+        }
+        var formatted = self.formatItem(item),
+                valueEscaped = self.escapeHtml(item.value),
+                value = formatted.value,
+                description = formatted.description,
+                icon = item.icon,
+                itemClass = 'autocomplete-suggestion',
+                classes = formatted.classes;
+
         var rendered = '<div class="' + classes.join(' ') + '" data-val="' + valueEscaped + '">';
         rendered += '<div class="' + itemClass + '-content">';
         if (icon) {
@@ -320,7 +1916,7 @@ function eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtens
 
     this.getResource = function (resourceKey) {
         var resources = this.getState().resources;
-        if (typeof resources[resourceKey] !== "object") {
+        if (!resources || typeof resources[resourceKey] !== "object") {
             return null;
         }
         return resources[resourceKey];
@@ -328,8 +1924,9 @@ function eu_maxschuster_vaadin_autocompletetextfield_AutocompleteTextFieldExtens
 
     this.getIconHtml = function (resourceKey) {
         var resource = this.getResource(resourceKey);
-        if (typeof resource !== "object") {
-            return false;
+        if (!resource) {
+            // unknown or already released by the server-side
+            return "";
         }
         var vaadinUri = resource.uRL;
         if (vaadinUri.substr(0, fontIconPrefix.length) === fontIconPrefix) {
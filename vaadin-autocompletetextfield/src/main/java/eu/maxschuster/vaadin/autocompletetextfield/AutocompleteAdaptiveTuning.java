@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield;
+
+import java.io.Serializable;
+
+/**
+ * Bounds for the adaptive delay and minimum number of characters of an
+ * {@link AutocompleteTextFieldExtension}.
+ * <p>
+ * The extension keeps a moving average of the time its
+ * {@link AutocompleteSuggestionProvider} takes to answer a query and of the
+ * number of suggestions it returns. The delay grows with the average latency,
+ * so textfields backed by slow providers send fewer queries while fast ones
+ * stay snappy. The minimum number of characters grows when the provider is
+ * slow <em>and</em> short terms fill the whole suggestion limit, because
+ * another character would narrow such results down anyway.
+ * </p>
+ * <p>
+ * Instances are immutable and can be shared by multiple extensions. The
+ * averages are kept per extension.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteTextFieldExtension#setAdaptiveTuning(AutocompleteAdaptiveTuning)
+ */
+public class AutocompleteAdaptiveTuning implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Weight of a new measurement in the moving averages
+     */
+    public static final double DEFAULT_SMOOTHING = 0.2;
+
+    /**
+     * Delay per millisecond of average provider latency
+     */
+    public static final double DEFAULT_LATENCY_FACTOR = 2;
+
+    /**
+     * Lower bound of the delay in milliseconds
+     */
+    private final int minDelay;
+
+    /**
+     * Upper bound of the delay in milliseconds
+     */
+    private final int maxDelay;
+
+    /**
+     * Lower bound of the minimum number of characters
+     */
+    private final int minMinChars;
+
+    /**
+     * Upper bound of the minimum number of characters
+     */
+    private final int maxMinChars;
+
+    /**
+     * Weight of a new measurement in the moving averages
+     */
+    private final double smoothing;
+
+    /**
+     * Delay per millisecond of average provider latency
+     */
+    private final double latencyFactor;
+
+    /**
+     * Creates new bounds with the default smoothing and latency factor.
+     *
+     * @param minDelay Lower bound of the delay in milliseconds (&gt;= 0).
+     * @param maxDelay Upper bound of the delay in milliseconds
+     * (&gt;= minDelay).
+     * @param minMinChars Lower bound of the minimum number of characters
+     * (&gt;= 1).
+     * @param maxMinChars Upper bound of the minimum number of characters
+     * (&gt;= minMinChars).
+     */
+    public AutocompleteAdaptiveTuning(int minDelay, int maxDelay,
+            int minMinChars, int maxMinChars) {
+        this(minDelay, maxDelay, minMinChars, maxMinChars, DEFAULT_SMOOTHING,
+                DEFAULT_LATENCY_FACTOR);
+    }
+
+    /**
+     * Creates new bounds.
+     *
+     * @param minDelay Lower bound of the delay in milliseconds (&gt;= 0).
+     * @param maxDelay Upper bound of the delay in milliseconds
+     * (&gt;= minDelay).
+     * @param minMinChars Lower bound of the minimum number of characters
+     * (&gt;= 1).
+     * @param maxMinChars Upper bound of the minimum number of characters
+     * (&gt;= minMinChars).
+     * @param smoothing Weight of a new measurement in the moving averages
+     * ({@code 0 < smoothing <= 1}).
+     * @param latencyFactor Delay per millisecond of average provider latency
+     * (&gt;= 0).
+     */
+    public AutocompleteAdaptiveTuning(int minDelay, int maxDelay,
+            int minMinChars, int maxMinChars, double smoothing,
+            double latencyFactor) {
+        if (minDelay < 0) {
+            throw new IllegalArgumentException("minDelay is negative!");
+        } else if (maxDelay < minDelay) {
+            throw new IllegalArgumentException("maxDelay is less than minDelay!");
+        } else if (minMinChars < 1) {
+            throw new IllegalArgumentException("minMinChars must be >= 1!");
+        } else if (maxMinChars < minMinChars) {
+            throw new IllegalArgumentException("maxMinChars is less than minMinChars!");
+        } else if (!(smoothing > 0 && smoothing <= 1)) {
+            throw new IllegalArgumentException("smoothing must be > 0 and <= 1!");
+        } else if (!(latencyFactor >= 0)) {
+            throw new IllegalArgumentException("latencyFactor is negative!");
+        }
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.minMinChars = minMinChars;
+        this.maxMinChars = maxMinChars;
+        this.smoothing = smoothing;
+        this.latencyFactor = latencyFactor;
+    }
+
+    /**
+     * Adds a measurement to a moving average.
+     *
+     * @param average The current average, negative if there is none yet.
+     * @param sample The new measurement.
+     * @return The new average.
+     */
+    public double smooth(double average, double sample) {
+        if (average < 0) {
+            return sample;
+        }
+        return average + smoothing * (sample - average);
+    }
+
+    /**
+     * Gets the delay for the given average provider latency.
+     *
+     * @param latency The average provider latency in milliseconds.
+     * @return The delay in milliseconds within the bounds.
+     */
+    public int getDelay(double latency) {
+        return clamp((int) Math.round(latency * latencyFactor), minDelay,
+                maxDelay);
+    }
+
+    /**
+     * Gets the minimum number of characters for the given averages.
+     * <p>
+     * It is raised in proportion to how close the delay is to its upper bound
+     * and to how full the results are.
+     * </p>
+     *
+     * @param latency The average provider latency in milliseconds.
+     * @param resultSize The average number of suggestions per query.
+     * @param limit The suggestion limit of the extension, 0 if unlimited.
+     * @return The minimum number of characters within the bounds.
+     */
+    public int getMinChars(double latency, double resultSize, int limit) {
+        if (maxMinChars == minMinChars || maxDelay == minDelay) {
+            return minMinChars;
+        }
+        double pressure = (getDelay(latency) - minDelay)
+                / (double) (maxDelay - minDelay);
+        double fullness = limit > 0
+                ? Math.min(1, resultSize / limit) : (resultSize > 0 ? 1 : 0);
+        return clamp(minMinChars + (int) Math.round(
+                (maxMinChars - minMinChars) * pressure * fullness),
+                minMinChars, maxMinChars);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Gets the lower bound of the delay.
+     *
+     * @return The lower bound of the delay in milliseconds.
+     */
+    public int getMinDelay() {
+        return minDelay;
+    }
+
+    /**
+     * Gets the upper bound of the delay.
+     *
+     * @return The upper bound of the delay in milliseconds.
+     */
+    public int getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Gets the lower bound of the minimum number of characters.
+     *
+     * @return The lower bound of the minimum number of characters.
+     */
+    public int getMinMinChars() {
+        return minMinChars;
+    }
+
+    /**
+     * Gets the upper bound of the minimum number of characters.
+     *
+     * @return The upper bound of the minimum number of characters.
+     */
+    public int getMaxMinChars() {
+        return maxMinChars;
+    }
+
+    /**
+     * Gets the weight of a new measurement in the moving averages.
+     *
+     * @return The weight of a new measurement.
+     */
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * Gets the delay per millisecond of average provider latency.
+     *
+     * @return The delay per millisecond of average provider latency.
+     */
+    public double getLatencyFactor() {
+        return latencyFactor;
+    }
+
+}
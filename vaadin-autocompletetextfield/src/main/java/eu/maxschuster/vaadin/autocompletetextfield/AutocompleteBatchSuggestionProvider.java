@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link AutocompleteSuggestionProvider} that can answer multiple
+ * {@link AutocompleteQuery}s at once, e.g. with a single database round trip.
+ * <p>
+ * When several {@link AutocompleteTextFieldExtension}s sharing the same
+ * provider receive queries in the same request, e.g. multiple fields of a
+ * form, the queries are collected and passed to
+ * {@link #querySuggestions(List)} together before the response is written.
+ * The results are then sent to each field.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteSuggestionProvider
+ * @see eu.maxschuster.vaadin.autocompletetextfield.provider.AbstractBatchSuggestionProvider
+ */
+public interface AutocompleteBatchSuggestionProvider extends AutocompleteSuggestionProvider {
+
+    /**
+     * Finds {@link AutocompleteSuggestion}s for all given
+     * {@link AutocompleteQuery}s.
+     * <p>
+     * The same rules as for {@link #querySuggestions(AutocompleteQuery)}
+     * apply to every query.
+     * </p>
+     *
+     * @param queries The {@link AutocompleteQuery}s generated by one or more
+     * {@link AutocompleteTextFieldExtension}s.
+     * @return A {@link Map} containing a {@link Collection} of
+     * {@link AutocompleteSuggestion}s for each {@link AutocompleteQuery}.
+     * Queries without an entry get no suggestions.
+     */
+    public Map<AutocompleteQuery, Collection<AutocompleteSuggestion>> querySuggestions(List<AutocompleteQuery> queries);
+
+}
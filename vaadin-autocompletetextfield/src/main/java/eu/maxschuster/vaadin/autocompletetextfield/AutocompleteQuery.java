@@ -43,6 +43,12 @@ public final class AutocompleteQuery implements Serializable {
      */
     private final int limit;
 
+    /**
+     * The number of leading results to skip. Used to load further pages of
+     * results.
+     */
+    private final int offset;
+
     /**
      * Creates a new query for the given search term.
      *
@@ -61,14 +67,30 @@ public final class AutocompleteQuery implements Serializable {
      * @param limit Max result limit.
      */
     public AutocompleteQuery(AutocompleteTextFieldExtension extension, String term, int limit) {
+        this(extension, term, limit, 0);
+    }
+
+    /**
+     * Creates a new query for the given search term with a result limit and
+     * an offset.
+     *
+     * @param extension The extension that has created this query.
+     * @param term The search term.
+     * @param limit Max result limit.
+     * @param offset The number of leading results to skip.
+     */
+    public AutocompleteQuery(AutocompleteTextFieldExtension extension, String term, int limit, int offset) {
         if (extension == null) {
             throw new NullPointerException("The extension is null!");
         } else if (term == null) {
             throw new NullPointerException("The term is null!");
+        } else if (offset < 0) {
+            throw new IllegalArgumentException("The offset is negative!");
         }
         this.extension = extension;
         this.term = term;
         this.limit = limit;
+        this.offset = offset;
     }
 
     /**
@@ -100,6 +122,19 @@ public final class AutocompleteQuery implements Serializable {
         return limit;
     }
 
+    /**
+     * Gets the number of leading results to skip.
+     * <p>
+     * An offset &gt; 0 is used to load the next page of results after the
+     * user has scrolled to the end of the suggestions.
+     * </p>
+     *
+     * @return The number of leading results to skip.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
     /**
      * Checks if this query has a limit.
      *
@@ -111,7 +146,7 @@ public final class AutocompleteQuery implements Serializable {
 
     @Override
     public String toString() {
-        return "AutocompleteQuery{" + "term=" + term + ", limit=" + limit + '}';
+        return "AutocompleteQuery{" + "term=" + term + ", limit=" + limit + ", offset=" + offset + '}';
     }
 
     @Override
@@ -120,6 +155,7 @@ public final class AutocompleteQuery implements Serializable {
         hash = 53 * hash + (this.extension != null ? this.extension.hashCode() : 0);
         hash = 53 * hash + (this.term != null ? this.term.hashCode() : 0);
         hash = 53 * hash + this.limit;
+        hash = 53 * hash + this.offset;
         return hash;
     }
 
@@ -135,6 +171,8 @@ public final class AutocompleteQuery implements Serializable {
         final AutocompleteQuery other = (AutocompleteQuery) obj;
         if (this.limit != other.limit) {
             return false;
+        } else if (this.offset != other.offset) {
+            return false;
         } else if ((this.term == null) ? (other.term != null) : !this.term.equals(other.term)) {
             return false;
         } else if (this.extension != other.extension && (this.extension == null || !this.extension.equals(other.extension))) {
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield;
+
+import com.vaadin.server.VaadinSession;
+import java.io.Serializable;
+
+/**
+ * A token bucket that limits the rate of queries an
+ * {@link AutocompleteTextFieldExtension} passes to its
+ * {@link AutocompleteSuggestionProvider}.
+ * <p>
+ * The bucket holds up to {@code capacity} tokens and is refilled with
+ * {@code tokensPerSecond} tokens per second. Every query takes one token.
+ * Queries arriving while the bucket is empty are rejected and the
+ * client-side retries them after the time it takes to refill one token.
+ * </p>
+ * <p>
+ * A single instance can be shared by multiple extensions to limit them
+ * together, see {@link #forSession(VaadinSession, int, double)}.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteTextFieldExtension#setRateLimiter(AutocompleteRateLimiter)
+ */
+public class AutocompleteRateLimiter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Nanoseconds per second
+     */
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    /**
+     * Max number of tokens
+     */
+    private final int capacity;
+
+    /**
+     * Refill rate
+     */
+    private final double tokensPerSecond;
+
+    /**
+     * Available tokens
+     */
+    private double tokens;
+
+    /**
+     * Time of the last refill in nanoseconds
+     */
+    private long lastRefill;
+
+    /**
+     * Number of rejected queries
+     */
+    private long rejectedCount = 0;
+
+    /**
+     * Number of rejected queries since a token has been taken the last time
+     */
+    private long rejectedSinceAcquire = 0;
+
+    /**
+     * Creates a new rate limiter with a full bucket.
+     *
+     * @param capacity Max number of tokens, the size of a burst (&gt;= 1).
+     * @param tokensPerSecond Number of tokens (queries) per second (&gt; 0).
+     */
+    public AutocompleteRateLimiter(int capacity, double tokensPerSecond) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1!");
+        } else if (!(tokensPerSecond > 0)) {
+            throw new IllegalArgumentException("tokensPerSecond must be > 0!");
+        }
+        this.capacity = capacity;
+        this.tokensPerSecond = tokensPerSecond;
+        this.tokens = capacity;
+        this.lastRefill = currentTimeNanos();
+    }
+
+    /**
+     * Gets the rate limiter shared by all extensions of the given
+     * {@link VaadinSession}. It is created with the given settings if the
+     * session doesn't have one yet.
+     *
+     * @param session The session.
+     * @param capacity Max number of tokens, the size of a burst (&gt;= 1).
+     * @param tokensPerSecond Number of tokens (queries) per second (&gt; 0).
+     * @return The rate limiter of the session.
+     */
+    public static AutocompleteRateLimiter forSession(VaadinSession session,
+            int capacity, double tokensPerSecond) {
+        AutocompleteRateLimiter limiter
+                = session.getAttribute(AutocompleteRateLimiter.class);
+        if (limiter == null) {
+            limiter = new AutocompleteRateLimiter(capacity, tokensPerSecond);
+            session.setAttribute(AutocompleteRateLimiter.class, limiter);
+        }
+        return limiter;
+    }
+
+    /**
+     * Tries to take a token.
+     *
+     * @return {@code 0} if a token has been taken, otherwise the number of
+     * milliseconds until the next token is available.
+     */
+    public synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            rejectedSinceAcquire = 0;
+            return 0;
+        }
+        ++rejectedCount;
+        ++rejectedSinceAcquire;
+        double missing = 1 - tokens;
+        return Math.max(1, (long) Math.ceil(missing / tokensPerSecond * 1000));
+    }
+
+    /**
+     * Tries to take a token, e.g. to sample log messages.
+     *
+     * @return {@code -1} if no token is available, otherwise the number of
+     * rejected attempts since a token has been taken the last time.
+     */
+    public synchronized long tryAcquireSample() {
+        long rejected = rejectedSinceAcquire;
+        if (tryAcquire() > 0) {
+            return -1;
+        }
+        return rejected;
+    }
+
+    /**
+     * Adds the tokens accumulated since the last refill.
+     */
+    private void refill() {
+        long now = currentTimeNanos();
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity,
+                    tokens + elapsed / NANOS_PER_SECOND * tokensPerSecond);
+        }
+        lastRefill = now;
+    }
+
+    /**
+     * Gets the current time in nanoseconds.
+     *
+     * @return The current time in nanoseconds.
+     */
+    protected long currentTimeNanos() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Gets the max number of tokens.
+     *
+     * @return The max number of tokens.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of tokens (queries) per second.
+     *
+     * @return The number of tokens per second.
+     */
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    /**
+     * Gets the number of queries that have been rejected by this limiter.
+     *
+     * @return The number of rejected queries.
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield;
+
+import java.util.Collection;
+
+/**
+ * An {@link AutocompleteSuggestionProvider} that finds its suggestions in
+ * multiple stages, e.g. cheap prefix matches first and expensive substring
+ * matches later.
+ * <p>
+ * The {@link AutocompleteTextFieldExtension} sends the suggestions of every
+ * stage to the client-side as soon as they are available. The client-side
+ * merges them into the already visible suggestions, so the first suggestions
+ * do not have to wait for the slowest stage.
+ * </p>
+ * <p>
+ * Suggestions that have already been sent by a previous stage and suggestions
+ * exceeding the {@link AutocompleteQuery}'s limit are ignored by the
+ * {@link AutocompleteTextFieldExtension}.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteSuggestionProvider
+ * @see AutocompleteTextFieldExtension
+ */
+public interface AutocompleteStagedSuggestionProvider extends AutocompleteSuggestionProvider {
+
+    /**
+     * Gets the number of stages of this provider.
+     *
+     * @return The number of stages (&gt;= 1).
+     */
+    public int getStageCount();
+
+    /**
+     * Finds the {@link AutocompleteSuggestion}s of the given stage for the
+     * given {@link AutocompleteQuery}.
+     *
+     * @param query The {@link AutocompleteQuery} generated by a
+     * {@link AutocompleteTextFieldExtension}.
+     * @param stage The stage ({@code 0 <= stage < getStageCount()}).
+     * @return A {@link Collection} of {@link AutocompleteSuggestion}s for the
+     * given {@link AutocompleteQuery} and stage.
+     * @see #getStageCount()
+     */
+    public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query, int stage);
+
+}
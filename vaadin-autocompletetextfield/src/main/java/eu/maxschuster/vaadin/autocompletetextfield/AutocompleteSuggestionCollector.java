@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield;
+
+import java.io.Serializable;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An {@link AutocompleteSuggestionSink} that collects the
+ * {@link AutocompleteSuggestion}s in a {@link Set} with a predictable
+ * iteration order until the limit is reached.
+ * <p>
+ * Duplicate suggestions are ignored and don't count against the limit.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteSuggestionSink
+ */
+public class AutocompleteSuggestionCollector implements AutocompleteSuggestionSink, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The collected suggestions
+     */
+    private final Set<AutocompleteSuggestion> suggestions;
+
+    /**
+     * The max amount of suggestions. If <code>limit &lt;= 0</code> the
+     * collector has no limit.
+     */
+    private final int limit;
+
+    /**
+     * Accept one suggestion beyond the limit to find out if there are more
+     * suggestions.
+     */
+    private final boolean lookahead;
+
+    /**
+     * A suggestion beyond the limit has been offered.
+     */
+    private boolean more = false;
+
+    /**
+     * Creates a new collector without a limit.
+     */
+    public AutocompleteSuggestionCollector() {
+        this(0);
+    }
+
+    /**
+     * Creates a new collector with the given limit.
+     *
+     * @param limit The max amount of suggestions. If
+     * <code>limit &lt;= 0</code> the collector has no limit.
+     */
+    public AutocompleteSuggestionCollector(int limit) {
+        this(limit, false);
+    }
+
+    /**
+     * Creates a new collector with the given limit.
+     * <p>
+     * With {@code lookahead} the collector asks for one suggestion beyond the
+     * limit. It isn't collected, but {@link #hasMore()} returns {@code true}
+     * afterwards.
+     * </p>
+     *
+     * @param limit The max amount of suggestions. If
+     * <code>limit &lt;= 0</code> the collector has no limit.
+     * @param lookahead Ask for one suggestion beyond the limit.
+     */
+    public AutocompleteSuggestionCollector(int limit, boolean lookahead) {
+        this.limit = limit;
+        this.lookahead = lookahead;
+        if (limit > 0) {
+            suggestions = new LinkedHashSet<AutocompleteSuggestion>(limit);
+        } else {
+            suggestions = new LinkedHashSet<AutocompleteSuggestion>();
+        }
+    }
+
+    @Override
+    public boolean add(AutocompleteSuggestion suggestion) {
+        if (suggestion != null) {
+            if (!isFull()) {
+                suggestions.add(suggestion);
+            } else if (!suggestions.contains(suggestion)) {
+                more = true;
+            }
+        }
+        return lookahead ? !more : !isFull();
+    }
+
+    /**
+     * Checks if the limit of this collector has been reached.
+     *
+     * @return {@code true} if the limit has been reached.
+     */
+    public boolean isFull() {
+        return limit > 0 && suggestions.size() >= limit;
+    }
+
+    /**
+     * Checks if a suggestion beyond the limit has been offered to this
+     * collector.
+     *
+     * @return {@code true} if there are more suggestions than collected.
+     */
+    public boolean hasMore() {
+        return more;
+    }
+
+    /**
+     * Gets the collected suggestions.
+     *
+     * @return The collected suggestions with a predictable iteration order.
+     */
+    public Set<AutocompleteSuggestion> getSuggestions() {
+        return suggestions;
+    }
+
+    /**
+     * Gets the limit of this collector.
+     *
+     * @return The limit. If <code>limit &lt;= 0</code> the collector has no
+     * limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+}
@@ -40,6 +40,11 @@ public interface AutocompleteSuggestionProvider extends Serializable {
      * <strong>Excess suggestions will be ignored by the
      * {@link AutocompleteTextFieldExtension}!</strong>
      * </p>
+     * <p>
+     * If {@link AutocompleteQuery#getOffset()} is &gt; 0 the implementation
+     * has to skip the given number of leading suggestions. Like the
+     * suggestions sent to the client-side, duplicates are counted once.
+     * </p>
      *
      * @param query The {@link AutocompleteQuery} generated by a
      * {@link AutocompleteTextFieldExtension}.
@@ -47,6 +52,7 @@ public interface AutocompleteSuggestionProvider extends Serializable {
      * given {@link AutocompleteQuery}
      * @see AutocompleteQuery#hasLimit()
      * @see AutocompleteQuery#getLimit()
+     * @see AutocompleteQuery#getOffset()
      */
     public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query);
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield;
+
+/**
+ * Receives the {@link AutocompleteSuggestion}s found by an
+ * {@link AutocompleteSuggestionSinkProvider}.
+ * <p>
+ * The sink tells the provider when it has got enough suggestions, so the
+ * provider can stop searching as soon as the limit is reached.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteSuggestionSinkProvider
+ * @see AutocompleteSuggestionCollector
+ */
+public interface AutocompleteSuggestionSink {
+
+    /**
+     * Adds the given {@link AutocompleteSuggestion} to this sink.
+     *
+     * @param suggestion The {@link AutocompleteSuggestion} to add.
+     * @return {@code true} if this sink accepts more suggestions,
+     * {@code false} if the provider should stop searching.
+     */
+    public boolean add(AutocompleteSuggestion suggestion);
+
+}
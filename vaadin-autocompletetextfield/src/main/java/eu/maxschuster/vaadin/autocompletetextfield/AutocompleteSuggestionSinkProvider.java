@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield;
+
+/**
+ * An {@link AutocompleteSuggestionProvider} that writes its suggestions into
+ * an {@link AutocompleteSuggestionSink} instead of returning a
+ * {@link java.util.Collection}.
+ * <p>
+ * The {@link AutocompleteTextFieldExtension} prefers
+ * {@link #querySuggestions(AutocompleteQuery, AutocompleteSuggestionSink)}
+ * over {@link #querySuggestions(AutocompleteQuery)}, so no intermediate
+ * collections are created and the provider can stop matching once the
+ * sink has got enough suggestions.
+ * </p>
+ * <p>
+ * Sinks are opt-in: Only providers implementing this interface are queried
+ * with a sink. The {@link java.util.Collection} based method of any other
+ * provider is called as before. Subclasses of a sink provider have to
+ * override the sink based method to change its results.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteSuggestionSink
+ * @see eu.maxschuster.vaadin.autocompletetextfield.provider.AbstractSinkSuggestionProvider
+ */
+public interface AutocompleteSuggestionSinkProvider extends AutocompleteSuggestionProvider {
+
+    /**
+     * Finds {@link AutocompleteSuggestion}s for the given
+     * {@link AutocompleteQuery} and adds them to the given
+     * {@link AutocompleteSuggestionSink}.
+     * <p>
+     * The implementation should stop searching as soon as
+     * {@link AutocompleteSuggestionSink#add(AutocompleteSuggestion)} returns
+     * {@code false}.
+     * </p>
+     *
+     * @param query The {@link AutocompleteQuery} generated by a
+     * {@link AutocompleteTextFieldExtension}.
+     * @param sink The {@link AutocompleteSuggestionSink} receiving the
+     * suggestions.
+     */
+    public void querySuggestions(AutocompleteQuery query, AutocompleteSuggestionSink sink);
+
+}
@@ -24,8 +24,12 @@ import com.vaadin.server.ErrorMessage;
 import com.vaadin.server.Extension;
 import com.vaadin.server.Resource;
 import com.vaadin.ui.TextField;
+import eu.maxschuster.vaadin.autocompletetextfield.metrics.AutocompleteMetrics;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
 import eu.maxschuster.vaadin.autocompletetextfield.shared.ScrollBehavior;
+import java.util.Collection;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * A {@link TextField} with autocomplete (aka word completion) functionality.
@@ -207,6 +211,448 @@ public class AutocompleteTextField extends TextField {
         return this;
     }
 
+    /**
+     * Checks if the client-side loads further pages of suggestions when the
+     * user scrolls to the end of the suggestions.
+     *
+     * @return Paging is enabled.
+     */
+    public boolean isPagingEnabled() {
+        return extension.isPagingEnabled();
+    }
+
+    /**
+     * Sets if the client-side loads further pages of suggestions when the user
+     * scrolls to the end of the suggestions.
+     * <p>
+     * The page size is the suggestion limit. The active
+     * {@link AutocompleteSuggestionProvider} has to respect
+     * {@link AutocompleteQuery#getOffset()}.
+     * </p>
+     *
+     * @param pagingEnabled Enable paging.
+     * @see #setSuggestionLimit(int)
+     */
+    public void setPagingEnabled(boolean pagingEnabled) {
+        extension.setPagingEnabled(pagingEnabled);
+    }
+
+    /**
+     * Sets if the client-side loads further pages of suggestions when the user
+     * scrolls to the end of the suggestions.
+     *
+     * @param pagingEnabled Enable paging.
+     * @return this (for method chaining)
+     * @see #setPagingEnabled(boolean)
+     */
+    public AutocompleteTextField withPagingEnabled(boolean pagingEnabled) {
+        setPagingEnabled(pagingEnabled);
+        return this;
+    }
+
+    /**
+     * Gets the number of suggestion icons that stay registered after the
+     * response that has used them.
+     *
+     * @return The number of registered icons.
+     * @see #setIconRegistrySize(int)
+     */
+    public int getIconRegistrySize() {
+        return extension.getIconRegistrySize();
+    }
+
+    /**
+     * Sets the number of suggestion icons that stay registered after the
+     * response that has used them.
+     * <p>
+     * Beyond this number the least recently used icons that the current
+     * response doesn't use are released. Suggestions kept from an earlier
+     * response are rendered without their icon once it has been released.
+     * The default is {@code 100}.
+     * </p>
+     *
+     * @param iconRegistrySize The number of registered icons.
+     */
+    public void setIconRegistrySize(int iconRegistrySize) {
+        extension.setIconRegistrySize(iconRegistrySize);
+    }
+
+    /**
+     * Sets the number of suggestion icons that stay registered after the
+     * response that has used them.
+     *
+     * @param iconRegistrySize The number of registered icons.
+     * @return this (for method chaining)
+     * @see #setIconRegistrySize(int)
+     */
+    public AutocompleteTextField withIconRegistrySize(int iconRegistrySize) {
+        setIconRegistrySize(iconRegistrySize);
+        return this;
+    }
+
+    /**
+     * Gets the {@link AutocompleteRateLimiter} that limits the rate of
+     * queries passed to the suggestion provider.
+     *
+     * @return The {@link AutocompleteRateLimiter} or {@code null}.
+     */
+    public AutocompleteRateLimiter getRateLimiter() {
+        return extension.getRateLimiter();
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the rate of
+     * queries passed to the suggestion provider.
+     *
+     * @param rateLimiter The {@link AutocompleteRateLimiter} or {@code null}
+     * for no limit.
+     * @see
+     * AutocompleteTextFieldExtension#setRateLimiter(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter)
+     */
+    public void setRateLimiter(AutocompleteRateLimiter rateLimiter) {
+        extension.setRateLimiter(rateLimiter);
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the rate of
+     * queries passed to the suggestion provider.
+     *
+     * @param rateLimiter The {@link AutocompleteRateLimiter} or {@code null}
+     * for no limit.
+     * @return this (for method chaining)
+     * @see
+     * #setRateLimiter(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter)
+     */
+    public AutocompleteTextField withRateLimiter(AutocompleteRateLimiter rateLimiter) {
+        setRateLimiter(rateLimiter);
+        return this;
+    }
+
+    /**
+     * Gets the {@link AutocompleteMetrics} receiving measurements of the query
+     * pipeline.
+     *
+     * @return The {@link AutocompleteMetrics} or {@code null}.
+     */
+    public AutocompleteMetrics getMetrics() {
+        return extension.getMetrics();
+    }
+
+    /**
+     * Sets the {@link AutocompleteMetrics} receiving measurements of the
+     * query pipeline.
+     *
+     * @param metrics The {@link AutocompleteMetrics} or {@code null}.
+     * @see
+     * AutocompleteTextFieldExtension#setMetrics(eu.maxschuster.vaadin.autocompletetextfield.metrics.AutocompleteMetrics)
+     */
+    public void setMetrics(AutocompleteMetrics metrics) {
+        extension.setMetrics(metrics);
+    }
+
+    /**
+     * Sets the {@link AutocompleteMetrics} receiving measurements of the
+     * query pipeline.
+     *
+     * @param metrics The {@link AutocompleteMetrics} or {@code null}.
+     * @return this (for method chaining)
+     * @see
+     * #setMetrics(eu.maxschuster.vaadin.autocompletetextfield.metrics.AutocompleteMetrics)
+     */
+    public AutocompleteTextField withMetrics(AutocompleteMetrics metrics) {
+        setMetrics(metrics);
+        return this;
+    }
+
+    /**
+     * Gets the number of milliseconds a query has to take to get logged.
+     *
+     * @return The slow query threshold in milliseconds, 0 if the slow query
+     * log is disabled.
+     */
+    public int getSlowQueryThreshold() {
+        return extension.getSlowQueryThreshold();
+    }
+
+    /**
+     * Sets the number of milliseconds a query has to take to get logged.
+     *
+     * @param slowQueryThreshold The slow query threshold in milliseconds, 0
+     * to disable the slow query log.
+     * @see AutocompleteTextFieldExtension#setSlowQueryThreshold(int)
+     */
+    public void setSlowQueryThreshold(int slowQueryThreshold) {
+        extension.setSlowQueryThreshold(slowQueryThreshold);
+    }
+
+    /**
+     * Sets the number of milliseconds a query has to take to get logged.
+     *
+     * @param slowQueryThreshold The slow query threshold in milliseconds, 0
+     * to disable the slow query log.
+     * @return this (for method chaining)
+     * @see #setSlowQueryThreshold(int)
+     */
+    public AutocompleteTextField withSlowQueryThreshold(int slowQueryThreshold) {
+        setSlowQueryThreshold(slowQueryThreshold);
+        return this;
+    }
+
+    /**
+     * Gets the {@link AutocompleteRateLimiter} that limits the number of
+     * logged slow queries.
+     *
+     * @return The {@link AutocompleteRateLimiter} or {@code null} if the
+     * shared sampler is used.
+     */
+    public AutocompleteRateLimiter getSlowQuerySampler() {
+        return extension.getSlowQuerySampler();
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the number of
+     * logged slow queries.
+     *
+     * @param slowQuerySampler The {@link AutocompleteRateLimiter} or
+     * {@code null} to use the shared sampler.
+     * @see
+     * AutocompleteTextFieldExtension#setSlowQuerySampler(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter)
+     */
+    public void setSlowQuerySampler(AutocompleteRateLimiter slowQuerySampler) {
+        extension.setSlowQuerySampler(slowQuerySampler);
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the number of
+     * logged slow queries.
+     *
+     * @param slowQuerySampler The {@link AutocompleteRateLimiter} or
+     * {@code null} to use the shared sampler.
+     * @return this (for method chaining)
+     * @see
+     * #setSlowQuerySampler(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter)
+     */
+    public AutocompleteTextField withSlowQuerySampler(AutocompleteRateLimiter slowQuerySampler) {
+        setSlowQuerySampler(slowQuerySampler);
+        return this;
+    }
+
+    /**
+     * Gets the bounds of the adaptive delay and minimum number of characters.
+     *
+     * @return The {@link AutocompleteAdaptiveTuning} or {@code null} if the
+     * adaptive mode is disabled.
+     */
+    public AutocompleteAdaptiveTuning getAdaptiveTuning() {
+        return extension.getAdaptiveTuning();
+    }
+
+    /**
+     * Enables the adaptive mode with the given bounds.
+     *
+     * @param adaptiveTuning The {@link AutocompleteAdaptiveTuning} or
+     * {@code null} to disable the adaptive mode.
+     * @see
+     * AutocompleteTextFieldExtension#setAdaptiveTuning(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteAdaptiveTuning)
+     */
+    public void setAdaptiveTuning(AutocompleteAdaptiveTuning adaptiveTuning) {
+        extension.setAdaptiveTuning(adaptiveTuning);
+    }
+
+    /**
+     * Enables the adaptive mode with the given bounds.
+     *
+     * @param adaptiveTuning The {@link AutocompleteAdaptiveTuning} or
+     * {@code null} to disable the adaptive mode.
+     * @return this (for method chaining)
+     * @see
+     * #setAdaptiveTuning(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteAdaptiveTuning)
+     */
+    public AutocompleteTextField withAdaptiveTuning(AutocompleteAdaptiveTuning adaptiveTuning) {
+        setAdaptiveTuning(adaptiveTuning);
+        return this;
+    }
+
+    /**
+     * Gets the max number of values of a {@link CollectionSuggestionProvider}
+     * that are shipped to the client-side as dictionary.
+     *
+     * @return The dictionary threshold, 0 if the dictionary mode is disabled.
+     */
+    public int getDictionaryThreshold() {
+        return extension.getDictionaryThreshold();
+    }
+
+    /**
+     * Sets the max number of values of a {@link CollectionSuggestionProvider}
+     * that are shipped to the client-side as dictionary.
+     * <p>
+     * If the suggestion provider is a {@link CollectionSuggestionProvider}
+     * with no more values than the threshold, its values are sent to the
+     * client-side once and filtered there, without a round trip per search.
+     * </p>
+     *
+     * @param dictionaryThreshold The dictionary threshold, 0 to disable the
+     * dictionary mode.
+     * @see AutocompleteTextFieldExtension#setDictionaryThreshold(int)
+     */
+    public void setDictionaryThreshold(int dictionaryThreshold) {
+        extension.setDictionaryThreshold(dictionaryThreshold);
+    }
+
+    /**
+     * Sets the max number of values of a {@link CollectionSuggestionProvider}
+     * that are shipped to the client-side as dictionary.
+     *
+     * @param dictionaryThreshold The dictionary threshold, 0 to disable the
+     * dictionary mode.
+     * @return this (for method chaining)
+     * @see #setDictionaryThreshold(int)
+     */
+    public AutocompleteTextField withDictionaryThreshold(int dictionaryThreshold) {
+        setDictionaryThreshold(dictionaryThreshold);
+        return this;
+    }
+
+    /**
+     * Checks if suggestions are requested in advance when the textfield gets
+     * focused.
+     *
+     * @return Prefetching is enabled.
+     */
+    public boolean isPrefetchEnabled() {
+        return extension.isPrefetchEnabled();
+    }
+
+    /**
+     * Sets if suggestions are requested in advance when the textfield gets
+     * focused.
+     * <p>
+     * The suggestions for the current text of the textfield and for the
+     * prefetch terms are sent to the client-side, which shows them without a
+     * round trip to the server-side once the user has typed one of them.
+     * </p>
+     *
+     * @param prefetchEnabled Enable prefetching.
+     * @see #setPrefetchTerms(java.util.Collection)
+     */
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        extension.setPrefetchEnabled(prefetchEnabled);
+    }
+
+    /**
+     * Sets if suggestions are requested in advance when the textfield gets
+     * focused.
+     *
+     * @param prefetchEnabled Enable prefetching.
+     * @return this (for method chaining)
+     * @see #setPrefetchEnabled(boolean)
+     */
+    public AutocompleteTextField withPrefetchEnabled(boolean prefetchEnabled) {
+        setPrefetchEnabled(prefetchEnabled);
+        return this;
+    }
+
+    /**
+     * Gets an unmodifiable {@link Set} of the terms queried in advance when
+     * the textfield gets focused.
+     *
+     * @return The prefetch terms.
+     */
+    public Set<String> getPrefetchTerms() {
+        return extension.getPrefetchTerms();
+    }
+
+    /**
+     * Sets the terms queried in advance when the textfield gets focused, e.g.
+     * the most common prefixes with the minimum number of characters.
+     *
+     * @param prefetchTerms The prefetch terms or {@code null}.
+     * @see #setPrefetchEnabled(boolean)
+     */
+    public void setPrefetchTerms(Collection<String> prefetchTerms) {
+        extension.setPrefetchTerms(prefetchTerms);
+    }
+
+    /**
+     * Sets the terms queried in advance when the textfield gets focused.
+     *
+     * @param prefetchTerms The prefetch terms.
+     * @return this (for method chaining)
+     * @see #setPrefetchTerms(java.util.Collection)
+     */
+    public AutocompleteTextField withPrefetchTerms(String... prefetchTerms) {
+        extension.withPrefetchTerms(prefetchTerms);
+        return this;
+    }
+
+    /**
+     * Gets the number of suggestions above which the client-side renders
+     * only the visible suggestions.
+     *
+     * @return The virtual rendering threshold, 0 if disabled.
+     */
+    public int getVirtualRenderingThreshold() {
+        return extension.getVirtualRenderingThreshold();
+    }
+
+    /**
+     * Sets the number of suggestions above which the client-side renders
+     * only the visible suggestions.
+     *
+     * @param virtualRenderingThreshold The virtual rendering threshold, 0 to
+     * disable the virtual rendering.
+     * @see AutocompleteTextFieldExtension#setVirtualRenderingThreshold(int)
+     */
+    public void setVirtualRenderingThreshold(int virtualRenderingThreshold) {
+        extension.setVirtualRenderingThreshold(virtualRenderingThreshold);
+    }
+
+    /**
+     * Sets the number of suggestions above which the client-side renders
+     * only the visible suggestions.
+     *
+     * @param virtualRenderingThreshold The virtual rendering threshold, 0 to
+     * disable the virtual rendering.
+     * @return this (for method chaining)
+     * @see #setVirtualRenderingThreshold(int)
+     */
+    public AutocompleteTextField withVirtualRenderingThreshold(int virtualRenderingThreshold) {
+        setVirtualRenderingThreshold(virtualRenderingThreshold);
+        return this;
+    }
+
+    /**
+     * Checks if suggestions are rendered by cloning a template.
+     *
+     * @return {@code true} if template rendering is enabled.
+     */
+    public boolean isTemplateRenderingEnabled() {
+        return extension.isTemplateRenderingEnabled();
+    }
+
+    /**
+     * Enables or disables rendering suggestions by cloning a template.
+     *
+     * @param templateRenderingEnabled Enable template rendering.
+     * @see AutocompleteTextFieldExtension#setTemplateRenderingEnabled(boolean)
+     */
+    public void setTemplateRenderingEnabled(boolean templateRenderingEnabled) {
+        extension.setTemplateRenderingEnabled(templateRenderingEnabled);
+    }
+
+    /**
+     * Enables or disables rendering suggestions by cloning a template.
+     *
+     * @param templateRenderingEnabled Enable template rendering.
+     * @return this (for method chaining)
+     * @see #setTemplateRenderingEnabled(boolean)
+     */
+    public AutocompleteTextField withTemplateRenderingEnabled(boolean templateRenderingEnabled) {
+        setTemplateRenderingEnabled(templateRenderingEnabled);
+        return this;
+    }
+
     /**
      * Checks whether items are rendered as HTML.
      * <p>
@@ -358,6 +804,142 @@ public class AutocompleteTextField extends TextField {
         return this;
     }
 
+    /**
+     * Gets the max number of searched terms whose suggestions are cached by
+     * the client-side.
+     *
+     * @return The max number of cached terms.
+     */
+    public int getCacheSize() {
+        return extension.getCacheSize();
+    }
+
+    /**
+     * Sets the max number of searched terms whose suggestions are cached by
+     * the client-side.
+     *
+     * @param cacheSize The max number of cached terms (&gt;= 1).
+     * @see AutocompleteTextFieldExtension#setCacheSize(int)
+     */
+    public void setCacheSize(int cacheSize) {
+        extension.setCacheSize(cacheSize);
+    }
+
+    /**
+     * Sets the max number of searched terms whose suggestions are cached by
+     * the client-side.
+     *
+     * @param cacheSize The max number of cached terms (&gt;= 1).
+     * @return this (for method chaining)
+     * @see #setCacheSize(int)
+     */
+    public AutocompleteTextField withCacheSize(int cacheSize) {
+        setCacheSize(cacheSize);
+        return this;
+    }
+
+    /**
+     * Gets the time after which suggestions cached by the client-side expire.
+     *
+     * @return The time to live in milliseconds, 0 if cached suggestions never
+     * expire.
+     */
+    public int getCacheTtl() {
+        return extension.getCacheTtl();
+    }
+
+    /**
+     * Sets the time after which suggestions cached by the client-side expire.
+     *
+     * @param cacheTtl The time to live in milliseconds, 0 if cached
+     * suggestions should never expire.
+     * @see AutocompleteTextFieldExtension#setCacheTtl(int)
+     */
+    public void setCacheTtl(int cacheTtl) {
+        extension.setCacheTtl(cacheTtl);
+    }
+
+    /**
+     * Sets the time after which suggestions cached by the client-side expire.
+     *
+     * @param cacheTtl The time to live in milliseconds, 0 if cached
+     * suggestions should never expire.
+     * @return this (for method chaining)
+     * @see #setCacheTtl(int)
+     */
+    public AutocompleteTextField withCacheTtl(int cacheTtl) {
+        setCacheTtl(cacheTtl);
+        return this;
+    }
+
+    /**
+     * Gets the id of the client-side cache shared with other textfields.
+     *
+     * @return The cache id or {@code null} if the textfield has a cache of its
+     * own.
+     */
+    public String getCacheId() {
+        return extension.getCacheId();
+    }
+
+    /**
+     * Sets the id of the client-side cache shared with other textfields.
+     *
+     * @param cacheId The cache id or {@code null} for a cache of its own.
+     * @see AutocompleteTextFieldExtension#setCacheId(java.lang.String)
+     */
+    public void setCacheId(String cacheId) {
+        extension.setCacheId(cacheId);
+    }
+
+    /**
+     * Sets the id of the client-side cache shared with other textfields.
+     *
+     * @param cacheId The cache id or {@code null} for a cache of its own.
+     * @return this (for method chaining)
+     * @see #setCacheId(java.lang.String)
+     */
+    public AutocompleteTextField withCacheId(String cacheId) {
+        setCacheId(cacheId);
+        return this;
+    }
+
+    /**
+     * Gets the version of the suggestions the client-side cache is persisted
+     * with.
+     *
+     * @return The cache version or {@code null} if the cache isn't persisted.
+     */
+    public String getCacheVersion() {
+        return extension.getCacheVersion();
+    }
+
+    /**
+     * Sets the version of the suggestions the client-side cache is persisted
+     * with.
+     *
+     * @param cacheVersion The cache version or {@code null} to disable the
+     * persistent cache.
+     * @see AutocompleteTextFieldExtension#setCacheVersion(java.lang.String)
+     */
+    public void setCacheVersion(String cacheVersion) {
+        extension.setCacheVersion(cacheVersion);
+    }
+
+    /**
+     * Sets the version of the suggestions the client-side cache is persisted
+     * with.
+     *
+     * @param cacheVersion The cache version or {@code null} to disable the
+     * persistent cache.
+     * @return this (for method chaining)
+     * @see #setCacheVersion(java.lang.String)
+     */
+    public AutocompleteTextField withCacheVersion(String cacheVersion) {
+        setCacheVersion(cacheVersion);
+        return this;
+    }
+
     /**
      * Gets all user-defined CSS style names of the dropdown menu container. If
      * the component has multiple style names defined, the return string is a
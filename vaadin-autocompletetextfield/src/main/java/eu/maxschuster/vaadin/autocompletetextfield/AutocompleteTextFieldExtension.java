@@ -20,25 +20,43 @@ import com.vaadin.annotations.StyleSheet;
 import com.vaadin.event.FieldEvents;
 import com.vaadin.server.AbstractJavaScriptExtension;
 import com.vaadin.server.ClientConnector;
+import com.vaadin.server.ExternalResource;
+import com.vaadin.server.FontIcon;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.Resource;
+import com.vaadin.server.ThemeResource;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.ui.AbstractTextField;
 import com.vaadin.ui.JavaScriptFunction;
 import com.vaadin.ui.TextField;
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
 import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.autocompletetextfield.metrics.AutocompleteMetrics;
+import eu.maxschuster.vaadin.autocompletetextfield.metrics.JmxAutocompleteMetrics;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
 import eu.maxschuster.vaadin.autocompletetextfield.shared.AutocompleteTextFieldExtensionState;
 import eu.maxschuster.vaadin.autocompletetextfield.shared.ScrollBehavior;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -70,6 +88,20 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Limits the log messages about rate limited queries of all extensions
+     * to one message per minute at {@link Level#INFO}.
+     */
+    private static final AutocompleteRateLimiter RATE_LIMIT_LOG_SAMPLER
+            = new AutocompleteRateLimiter(1, 1 / 60d);
+
+    /**
+     * Limits the slow query log of all extensions to 10 messages per minute,
+     * unless an extension has its own sampler.
+     */
+    private static final AutocompleteRateLimiter SLOW_QUERY_SAMPLER
+            = new AutocompleteRateLimiter(10, 10 / 60d);
+
     /**
      * A dummy {@link FieldEvents.TextChangeListener} to prevent the
      * {@link TextField} from reseting to an old value on the client-side.
@@ -91,6 +123,16 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
      * <li>{@link JsonValue} {@code requestId} - Request id to send back to the
      * client-side.</li>
      * <li>{@link String} {@code term} - The search term.</li>
+     * <li>{@link JsonObject} {@code options} - Optional query options:
+     * <ul>
+     * <li>{@code stage} - The stage of an
+     * {@link AutocompleteStagedSuggestionProvider} to query.</li>
+     * <li>{@code offset} - The number of suggestions the client-side already
+     * has (loading the next page).</li>
+     * <li>{@code cacheHits} - The number of searches the client-side has
+     * answered itself since the last query.</li>
+     * </ul>
+     * </li>
      * </ul>
      */
     private final JavaScriptFunction querySuggestions = new JavaScriptFunction() {
@@ -101,9 +143,88 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
         public void call(JsonArray arguments) {
             JsonValue requestId = arguments.get(0);
             String term = arguments.getString(1);
-            Set<AutocompleteSuggestion> suggestions = querySuggestions(term);
-            JsonValue suggestionsAsJson = suggestionsToJson(suggestions);
-            callFunction("setSuggestions", requestId, suggestionsAsJson);
+            JsonObject options = arguments.length() > 2
+                    && arguments.get(2).getType() == JsonType.OBJECT
+                            ? arguments.getObject(2) : null;
+            int stage = getInt(options, "stage", 0);
+            int offset = getInt(options, "offset", 0);
+            int cacheHits = getInt(options, "cacheHits", 0);
+            AutocompleteMetrics m = metrics;
+            if (m != null && cacheHits > 0) {
+                m.recordClientCache(suggestionProvider, cacheHits, 0);
+            }
+            if (isRateLimited(requestId, term)) {
+                return;
+            }
+            if (m != null && stage == 0 && offset == 0) {
+                // a new search the client-side couldn't answer itself
+                m.recordClientCache(suggestionProvider, 0, 1);
+            }
+            QueryTiming timing = beginTiming(System.nanoTime());
+            try {
+                if (suggestionProvider instanceof AutocompleteStagedSuggestionProvider) {
+                    queryStage(requestId, term, stage);
+                } else {
+                    queryPage(requestId, term, offset);
+                }
+            } finally {
+                endTiming(timing);
+            }
+        }
+
+    };
+
+    /**
+     * Receives the current text of the textfield when it gets focused and
+     * sends the suggestions for it and for the prefetch terms to the
+     * JavaScript method "setPrefetchedSuggestions".
+     * <p>
+     * <b>Parameters:</b>
+     * <ul>
+     * <li>{@link String} {@code text} - The current text of the
+     * textfield.</li>
+     * </ul>
+     *
+     * @see #setPrefetchEnabled(boolean)
+     */
+    private final JavaScriptFunction prefetchSuggestions = new JavaScriptFunction() {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void call(JsonArray arguments) {
+            String text = arguments.length() > 0
+                    && arguments.get(0).getType() == JsonType.STRING
+                            ? arguments.getString(0) : null;
+            prefetch(text);
+        }
+
+    };
+
+    /**
+     * Receives the number of searches the client-side has answered itself
+     * since its last query. The client-side reports them when the textfield
+     * loses the focus, because they are otherwise only sent along with the
+     * next query.
+     * <p>
+     * <b>Parameters:</b>
+     * <ul>
+     * <li>{@link Number} {@code cacheHits} - The number of searches.</li>
+     * </ul>
+     */
+    private final JavaScriptFunction reportCacheHits = new JavaScriptFunction() {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void call(JsonArray arguments) {
+            int cacheHits = arguments.length() > 0
+                    && arguments.get(0).getType() == JsonType.NUMBER
+                            ? (int) arguments.getNumber(0) : 0;
+            AutocompleteMetrics m = metrics;
+            if (m != null && cacheHits > 0) {
+                m.recordClientCache(suggestionProvider, cacheHits, 0);
+            }
         }
 
     };
@@ -113,11 +234,116 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
      */
     private int suggestionLimit = 0;
 
+    /**
+     * Allow the client-side to load further pages of suggestions
+     */
+    private boolean pagingEnabled = false;
+
+    /**
+     * Limits the rate of queries passed to the suggestion provider
+     */
+    private AutocompleteRateLimiter rateLimiter = null;
+
+    /**
+     * Receives measurements of the query pipeline
+     */
+    private AutocompleteMetrics metrics = null;
+
+    /**
+     * Queries taking at least this many milliseconds get logged, 0 disables
+     * the slow query log
+     */
+    private int slowQueryThreshold = 0;
+
+    /**
+     * Limits the number of logged slow queries, {@code null} for the shared
+     * sampler
+     */
+    private AutocompleteRateLimiter slowQuerySampler = null;
+
+    /**
+     * The timing of the query currently executed
+     */
+    private transient QueryTiming timing = null;
+
+    /**
+     * Bounds of the adaptive delay and minChars, {@code null} if disabled
+     */
+    private AutocompleteAdaptiveTuning adaptiveTuning = null;
+
+    /**
+     * Moving average of the provider latency in milliseconds, negative if
+     * nothing has been measured yet
+     */
+    private double latencyAverage = -1;
+
+    /**
+     * Moving average of the number of suggestions per query, negative if
+     * nothing has been measured yet
+     */
+    private double resultSizeAverage = -1;
+
+    /**
+     * Terms queried in advance when the textfield gets focused
+     */
+    private final Set<String> prefetchTerms = new LinkedHashSet<String>();
+
+    /**
+     * Max number of values shipped to the client-side as dictionary, 0
+     * disables the dictionary mode
+     */
+    private int dictionaryThreshold = 0;
+
+    /**
+     * The provider whose values the client-side has as dictionary
+     */
+    private CollectionSuggestionProvider dictionaryProvider = null;
+
+    /**
+     * The version of the dictionary the client-side has, -1 forces an update
+     */
+    private int dictionaryVersion = -1;
+
+    /**
+     * Terms cached by the client-side, shared with other extensions using the
+     * same id
+     */
+    private String cacheId = null;
+
     /**
      * The suggestion provider queried for suggesions
      */
     protected AutocompleteSuggestionProvider suggestionProvider = null;
 
+    /**
+     * The pending query of an {@link AutocompleteStagedSuggestionProvider}
+     */
+    private StagedQuery stagedQuery = null;
+
+    /**
+     * Resource keys of the registered icons, in least recently used order
+     */
+    private final Map<Object, String> iconKeys
+            = new LinkedHashMap<Object, String>(16, 0.75f, true);
+
+    /**
+     * Number of icon resources kept registered, even if the last response
+     * hasn't used them
+     */
+    private int iconRegistrySize = 100;
+
+    /**
+     * Counter used to create unique icon resource keys
+     */
+    private int iconKeyCounter = 0;
+
+    /**
+     * The suggestions of the last {@link #suggestionsToJson(java.util.Set)}
+     * call mapped to their position
+     */
+    private Map<SentSuggestion, Integer> previousSuggestions
+            = new HashMap<SentSuggestion, Integer>();
+
     /**
      * Construct a new {@link AutocompleteTextFieldExtension}.
      */
@@ -183,11 +409,134 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
         return AutocompleteTextFieldExtensionState.class;
     }
 
+    @Override
+    public void beforeClientResponse(boolean initial) {
+        super.beforeClientResponse(initial);
+        if (initial) {
+            // the new client-side connector has no previous suggestions
+            previousSuggestions.clear();
+        }
+        updateDictionary(initial);
+        VaadinSession session = getSession();
+        BatchCollector batchCollector = session != null
+                ? session.getAttribute(BatchCollector.class) : null;
+        if (batchCollector != null) {
+            // execute the batch queries received in this request
+            session.setAttribute(BatchCollector.class, null);
+            batchCollector.execute();
+        }
+    }
+
+    /**
+     * Sends the values of the {@link CollectionSuggestionProvider} to the
+     * client-side if the dictionary mode is active and the client-side doesn't
+     * have the current version yet. Clears the dictionary of the client-side
+     * if the dictionary mode isn't active anymore.
+     *
+     * @param initial The client-side connector has been created.
+     * @see #setDictionaryThreshold(int)
+     */
+    private void updateDictionary(boolean initial) {
+        CollectionSuggestionProvider provider = getDictionaryProvider();
+        if (provider == null) {
+            if (dictionaryProvider != null && !initial) {
+                callFunction("setDictionary", Json.createNull(),
+                        Json.createObject());
+            }
+            dictionaryProvider = null;
+            return;
+        }
+        int version = provider.getVersion();
+        if (!initial && provider == dictionaryProvider
+                && version == dictionaryVersion) {
+            return; // up to date
+        }
+
+        JsonArray values = Json.createArray();
+        int i = 0;
+        for (String value : provider.getValues()) {
+            values.set(i++, value != null
+                    ? Json.create(value) : Json.createNull());
+        }
+        JsonObject options = createMatchOptions(provider);
+        options.put("version", version);
+        options.put("limit", suggestionLimit);
+        options.put("paging", pagingEnabled);
+        callFunction("setDictionary", values, options);
+        dictionaryProvider = provider;
+        dictionaryVersion = version;
+    }
+
+    /**
+     * Creates the options that tell the client-side how the given
+     * {@link CollectionSuggestionProvider} matches its values.
+     *
+     * @param provider The {@link CollectionSuggestionProvider}.
+     * @return The options containing "matchMode", "ignoreCase" and "locale".
+     */
+    private JsonObject createMatchOptions(CollectionSuggestionProvider provider) {
+        Locale locale = provider.getLocale();
+        String localeTag = locale.getLanguage();
+        if (!locale.getCountry().isEmpty()) {
+            localeTag += "-" + locale.getCountry();
+        }
+        JsonObject options = Json.createObject();
+        options.put("matchMode", provider.getMatchMode().name());
+        options.put("ignoreCase", provider.isIgnoreCase());
+        options.put("locale", localeTag);
+        return options;
+    }
+
+    /**
+     * Gets the {@link CollectionSuggestionProvider} used as dictionary on the
+     * client-side.
+     *
+     * @return The {@link CollectionSuggestionProvider} or {@code null} if the
+     * dictionary mode isn't active.
+     */
+    private CollectionSuggestionProvider getDictionaryProvider() {
+        CollectionSuggestionProvider provider = getClientMatchableProvider();
+        if (dictionaryThreshold > 0 && provider != null
+                && provider.getValues().size() <= dictionaryThreshold) {
+            return provider;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the suggestion provider if the client-side can match its values
+     * itself. That is only the case for a plain
+     * {@link CollectionSuggestionProvider}, because subclasses may match,
+     * filter or decorate their suggestions differently.
+     *
+     * @return The {@link CollectionSuggestionProvider} or {@code null}.
+     */
+    private CollectionSuggestionProvider getClientMatchableProvider() {
+        if (suggestionProvider != null && suggestionProvider.getClass()
+                == CollectionSuggestionProvider.class) {
+            return (CollectionSuggestionProvider) suggestionProvider;
+        }
+        return null;
+    }
+
+    /**
+     * Makes sure the dictionary of the client-side gets updated with the next
+     * response.
+     */
+    private void invalidateDictionary() {
+        dictionaryVersion = -1;
+        if (dictionaryThreshold > 0 || dictionaryProvider != null) {
+            markAsDirty();
+        }
+    }
+
     /**
      * Adds all {@link JavaScriptFunction}s
      */
     private void addFunctions() {
         addFunction("serverQuerySuggestions", querySuggestions);
+        addFunction("serverPrefetchSuggestions", prefetchSuggestions);
+        addFunction("serverReportCacheHits", reportCacheHits);
     }
 
     /**
@@ -220,177 +569,1308 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
      * predictable iteration order.
      */
     protected Set<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query) {
+        AutocompleteSuggestionCollector collector
+                = new AutocompleteSuggestionCollector(query.getLimit());
+        querySuggestions(query, collector);
+        return collector.getSuggestions();
+    }
+
+    /**
+     * Executes the given {@link AutocompleteQuery} and writes the results into
+     * the given {@link AutocompleteSuggestionSink}.
+     * <p>
+     * An {@link AutocompleteSuggestionSinkProvider} writes directly into the
+     * sink. The results of any other {@link AutocompleteSuggestionProvider}
+     * are copied into the sink until it is full.
+     * </p>
+     *
+     * @param query The Query.
+     * @param sink The {@link AutocompleteSuggestionSink} receiving the
+     * results.
+     */
+    protected void querySuggestions(AutocompleteQuery query, AutocompleteSuggestionSink sink) {
         if (suggestionProvider == null) {
             // no suggestionProvider set
-            return Collections.emptySet();
+            return;
         }
 
-        Collection<AutocompleteSuggestion> suggestions
-                = suggestionProvider.querySuggestions(query);
-        if (suggestions == null) {
-            // suggestionProvider has returned null
-            return Collections.emptySet();
+        long start = System.nanoTime();
+        if (suggestionProvider instanceof AutocompleteSuggestionSinkProvider) {
+            ((AutocompleteSuggestionSinkProvider) suggestionProvider)
+                    .querySuggestions(query, sink);
+            recordQuery(query, System.nanoTime() - start, 0);
+            return;
         }
 
-        int limit = query.getLimit();
-        if (limit > 0 && limit < suggestions.size()) {
-            // suggestionProvider has returned more results than allowed
-            Set<AutocompleteSuggestion> subSet
-                    = new LinkedHashSet<AutocompleteSuggestion>(limit);
+        Collection<AutocompleteSuggestion> suggestions
+                = suggestionProvider.querySuggestions(query);
+        long providerEnd = System.nanoTime();
+        if (suggestions != null) {
             for (AutocompleteSuggestion suggestion : suggestions) {
-                subSet.add(suggestion);
-                if (subSet.size() >= limit) {
-                    // size has reached the limit, ignore the following results
-                    // TODO: Should we log a message here?
+                if (!sink.add(suggestion)) {
+                    // sink is full, ignore the following results
                     break;
                 }
             }
-            return subSet;
-        } else {
-            // suggestionProvider has respected the query limit
-            return new LinkedHashSet<AutocompleteSuggestion>(suggestions);
         }
+        recordQuery(query, providerEnd - start, System.nanoTime() - providerEnd);
     }
 
     /**
-     * Converts the given {@link AutocompleteSuggestion} into a
-     * {@link JsonValue} representation because {@link JsonCodec} can't handle
-     * it itself.
+     * Passes the timings of a query to the {@link AutocompleteMetrics}, if
+     * set.
+     *
+     * @param query The executed query.
+     * @param providerNanos Time spent in the provider in nanoseconds.
+     * @param trimNanos Time spent to trim the result in nanoseconds.
+     */
+    private void recordQuery(AutocompleteQuery query, long providerNanos,
+            long trimNanos) {
+        AutocompleteMetrics m = metrics;
+        if (m != null) {
+            m.recordQuery(suggestionProvider, query, providerNanos, trimNanos);
+        }
+        QueryTiming t = timing;
+        if (t != null) {
+            t.query = query;
+            t.providerNanos += providerNanos;
+            t.trimNanos += trimNanos;
+        }
+    }
+
+    /**
+     * Starts to time a query for the slow query log and the adaptive tuning.
+     *
+     * @param startNanos The start time of the query.
+     * @return The {@link QueryTiming} or {@code null} if neither the slow query
+     * log nor the adaptive tuning is enabled.
+     */
+    private QueryTiming beginTiming(long startNanos) {
+        timing = slowQueryThreshold > 0 || adaptiveTuning != null
+                ? new QueryTiming(startNanos) : null;
+        return timing;
+    }
+
+    /**
+     * Feeds the given query into the adaptive tuning and logs it, if it has
+     * been slower than the threshold and the sampler allows it.
+     *
+     * @param t The {@link QueryTiming} or {@code null}.
+     * @see #setSlowQueryThreshold(int)
+     * @see #setAdaptiveTuning(AutocompleteAdaptiveTuning)
+     */
+    private void endTiming(QueryTiming t) {
+        timing = null;
+        if (t == null || t.query == null) {
+            return; // timing disabled or nothing queried
+        }
+        if (adaptiveTuning != null) {
+            adapt(t);
+        }
+        if (slowQueryThreshold <= 0) {
+            return;
+        }
+        long totalNanos = System.nanoTime() - t.startNanos;
+        if (totalNanos < TimeUnit.MILLISECONDS.toNanos(slowQueryThreshold)) {
+            return;
+        }
+        AutocompleteRateLimiter sampler = slowQuerySampler != null
+                ? slowQuerySampler : SLOW_QUERY_SAMPLER;
+        long suppressed = sampler.tryAcquireSample();
+        if (suppressed < 0) {
+            return; // sampled out
+        }
+        AutocompleteQuery query = t.query;
+        Logger logger = getLogger();
+        if (logger.isLoggable(Level.INFO)) {
+            logger.log(Level.INFO, "Slow query \"{0}\" (limit {1}, offset {2}, "
+                    + "provider {3}): {4} suggestions in {5} ms (provider {6} ms, "
+                    + "trimming {7} ms, serialization {8} ms, {9} slow queries "
+                    + "not logged since the last entry)", new Object[]{query.getTerm(),
+                        query.getLimit(), query.getOffset(),
+                        suggestionProvider != null
+                                ? suggestionProvider.getClass().getName() : null,
+                        t.resultCount, millis(totalNanos),
+                        millis(t.providerNanos), millis(t.trimNanos),
+                        millis(t.encodeNanos), suppressed});
+        }
+    }
+
+    /**
+     * Updates the moving averages with the given query and adjusts the delay
+     * and minChars of the shared state if they have changed.
+     *
+     * @param t The {@link QueryTiming} of the query.
+     */
+    private void adapt(QueryTiming t) {
+        AutocompleteAdaptiveTuning tuning = adaptiveTuning;
+        latencyAverage = tuning.smooth(latencyAverage, t.providerNanos / 1e6);
+        resultSizeAverage = tuning.smooth(resultSizeAverage, t.resultCount);
+        int delay = tuning.getDelay(latencyAverage);
+        int minChars = tuning.getMinChars(latencyAverage, resultSizeAverage,
+                suggestionLimit);
+        AutocompleteTextFieldExtensionState state = getState(false);
+        if (state.delay != delay || state.minChars != minChars) {
+            getLogger().log(Level.FINE, "Adapted delay to {0} ms and minChars "
+                    + "to {1} (latency {2} ms, {3} suggestions)",
+                    new Object[]{delay, minChars,
+                        millis((long) (latencyAverage * 1e6)),
+                        Math.round(resultSizeAverage)});
+            state = getState();
+            state.delay = delay;
+            state.minChars = minChars;
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Converts the given suggestions with
+     * {@link #suggestionsToJson(java.util.Set)} and passes the timing to the
+     * {@link AutocompleteMetrics}, if set.
      *
      * @param suggestions Suggestions.
      * @return {@link JsonValue} representation.
      */
-    protected JsonValue suggestionsToJson(Set<AutocompleteSuggestion> suggestions) {
-        JsonArray array = Json.createArray();
-        int i = 0;
-        for (AutocompleteSuggestion suggestion : suggestions) {
-            JsonObject object = Json.createObject();
+    private JsonValue encodeSuggestions(Set<AutocompleteSuggestion> suggestions) {
+        long start = System.nanoTime();
+        JsonValue json = suggestionsToJson(suggestions);
+        long encodeNanos = System.nanoTime() - start;
+        AutocompleteMetrics m = metrics;
+        if (m != null) {
+            m.recordResponse(suggestionProvider, suggestions.size(), encodeNanos);
+        }
+        QueryTiming t = timing;
+        if (t != null) {
+            t.resultCount += suggestions.size();
+            t.encodeNanos += encodeNanos;
+        }
+        return json;
+    }
 
-            String value = suggestion.getValue();
-            String description = suggestion.getDescription();
-            Resource icon = suggestion.getIcon();
-            List<String> styleNames = suggestion.getStyleNames();
+    /**
+     * Checks if the active {@link AutocompleteRateLimiter} rejects the query.
+     * <p>
+     * A rejected query is answered with no suggestions and the time after
+     * which the client-side should retry it.
+     * </p>
+     *
+     * @param requestId Request id to send back to the client-side.
+     * @param term The search term.
+     * @return {@code true} if the query has been rejected.
+     */
+    private boolean isRateLimited(JsonValue requestId, String term) {
+        AutocompleteRateLimiter limiter = rateLimiter;
+        if (limiter == null) {
+            return false;
+        }
+        long retryAfter = limiter.tryAcquire();
+        if (retryAfter <= 0) {
+            return false;
+        }
+        long unlogged = RATE_LIMIT_LOG_SAMPLER.tryAcquireSample();
+        if (unlogged >= 0) {
+            getLogger().log(Level.INFO, "Query \"{0}\" rejected by the rate "
+                    + "limiter, retry after {1} ms ({2} rejected queries, {3} "
+                    + "rejected queries not logged since the last entry)",
+                    new Object[]{term, retryAfter, limiter.getRejectedCount(),
+                        unlogged});
+        } else {
+            getLogger().log(Level.FINE, "Query \"{0}\" rejected by the rate "
+                    + "limiter, retry after {1} ms ({2} rejected queries)",
+                    new Object[]{term, retryAfter, limiter.getRejectedCount()});
+        }
+        JsonObject options = Json.createObject();
+        options.put("retryAfter", retryAfter);
+        callFunction("setSuggestions", requestId, Json.createArray(), options);
+        return true;
+    }
 
-            object.put("value", value != null
-                    ? Json.create(value) : Json.createNull());
-            object.put("description", description != null
-                    ? Json.create(description) : Json.createNull());
-            if (icon != null) {
-                String key = "icon-" + i;
-                setResource(key, icon);
-                object.put("icon", key);
-            } else {
-                object.put("icon", Json.createNull());
+    /**
+     * Executes a query for the page of suggestions starting at the given
+     * offset and sends the results to the client-side.
+     * <p>
+     * If paging is enabled, the client-side is told whether there are more
+     * suggestions beyond the limit. An {@link AutocompleteSuggestionSinkProvider}
+     * is asked for one suggestion beyond the limit to find out. For any other
+     * {@link AutocompleteSuggestionProvider} a full page is taken as a sign
+     * that there are more suggestions.
+     * </p>
+     * <p>
+     * Queries for an {@link AutocompleteBatchSuggestionProvider} are not
+     * executed right away. They are collected with the queries of other
+     * extensions received in the same request and executed together in
+     * {@link #beforeClientResponse(boolean)}.
+     * </p>
+     *
+     * @param requestId Request id to send back to the client-side.
+     * @param term The search term.
+     * @param offset The number of leading suggestions to skip.
+     * @see #setPagingEnabled(boolean)
+     */
+    protected void queryPage(JsonValue requestId, String term, int offset) {
+        AutocompleteQuery query = new AutocompleteQuery(this, term,
+                suggestionLimit, Math.max(offset, 0));
+        VaadinSession session = getSession();
+        if (suggestionProvider instanceof AutocompleteBatchSuggestionProvider
+                && session != null) {
+            BatchCollector batchCollector
+                    = session.getAttribute(BatchCollector.class);
+            if (batchCollector == null) {
+                batchCollector = new BatchCollector();
+                session.setAttribute(BatchCollector.class, batchCollector);
             }
-            if (styleNames != null) {
-                JsonArray styleNamesArray = Json.createArray();
-                int s = 0;
-                for (String styleName : styleNames) {
-                    if (styleName == null) {
-                        continue;
-                    }
-                    styleNamesArray.set(s++, styleName);
+            batchCollector.add((AutocompleteBatchSuggestionProvider) suggestionProvider,
+                    new BatchQuery(this, requestId, query));
+            // make sure beforeClientResponse(boolean) gets called
+            markAsDirty();
+            return;
+        }
+
+        AutocompleteSuggestionCollector collector = createCollector(query);
+        querySuggestions(query, collector);
+        sendPage(requestId, collector,
+                suggestionProvider instanceof AutocompleteSuggestionSinkProvider);
+    }
+
+    /**
+     * Sends the suggestions of a batch query to the client-side.
+     *
+     * @param requestId Request id to send back to the client-side.
+     * @param query The query.
+     * @param suggestions The suggestions found by the
+     * {@link AutocompleteBatchSuggestionProvider} or {@code null}.
+     */
+    private void sendBatchResult(JsonValue requestId, AutocompleteQuery query,
+            Collection<AutocompleteSuggestion> suggestions) {
+        AutocompleteSuggestionCollector collector = createCollector(query);
+        if (suggestions != null) {
+            for (AutocompleteSuggestion suggestion : suggestions) {
+                if (!collector.add(suggestion)) {
+                    break;
+                }
+            }
+        }
+        sendPage(requestId, collector, false);
+    }
+
+    /**
+     * Queries the suggestions for the given text and the prefetch terms in
+     * advance and sends them to the client-side, which keeps them until they
+     * are requested.
+     * <p>
+     * Terms shorter than the minimum number of characters are skipped, because
+     * the client-side never requests them. Prefetching stops as soon as the
+     * {@link AutocompleteRateLimiter} rejects a term.
+     * </p>
+     *
+     * @param text The current text of the textfield or {@code null}.
+     * @see #setPrefetchEnabled(boolean)
+     * @see #setPrefetchTerms(java.util.Collection)
+     */
+    protected void prefetch(String text) {
+        if (suggestionProvider == null || !isPrefetchEnabled()
+                || getDictionaryProvider() != null) {
+            // nothing to prefetch, the dictionary is searched locally
+            return;
+        }
+        int minChars = getMinChars();
+        Set<String> terms = new LinkedHashSet<String>();
+        if (text != null && text.length() >= minChars) {
+            terms.add(text);
+        }
+        for (String term : prefetchTerms) {
+            if (term.length() >= minChars) {
+                terms.add(term);
+            }
+        }
+
+        List<AutocompleteQuery> queries = new ArrayList<AutocompleteQuery>();
+        for (String term : terms) {
+            if (rateLimiter != null && rateLimiter.tryAcquire() > 0) {
+                break;
+            }
+            queries.add(new AutocompleteQuery(this, term, suggestionLimit));
+        }
+        if (queries.isEmpty()) {
+            return;
+        }
+
+        if (suggestionProvider instanceof AutocompleteBatchSuggestionProvider) {
+            long start = System.nanoTime();
+            Map<AutocompleteQuery, Collection<AutocompleteSuggestion>> results
+                    = ((AutocompleteBatchSuggestionProvider) suggestionProvider)
+                            .querySuggestions(queries);
+            long providerNanos = (System.nanoTime() - start) / queries.size();
+            for (AutocompleteQuery query : queries) {
+                recordQuery(query, providerNanos, 0);
+                AutocompleteSuggestionCollector collector = createCollector(query);
+                Collection<AutocompleteSuggestion> suggestions
+                        = results != null ? results.get(query) : null;
+                if (suggestions != null) {
+                    for (AutocompleteSuggestion suggestion : suggestions) {
+                        if (!collector.add(suggestion)) {
+                            break;
+                        }
+                    }
+                }
+                sendPrefetched(query.getTerm(), collector, false);
+            }
+        } else {
+            for (AutocompleteQuery query : queries) {
+                AutocompleteSuggestionCollector collector = createCollector(query);
+                querySuggestions(query, collector);
+                sendPrefetched(query.getTerm(), collector,
+                        suggestionProvider instanceof AutocompleteSuggestionSinkProvider);
+            }
+        }
+    }
+
+    /**
+     * Sends prefetched suggestions to the client-side.
+     *
+     * @param term The search term.
+     * @param collector The collected suggestions.
+     * @param lookahead The provider has been asked for one suggestion beyond
+     * the limit.
+     */
+    private void sendPrefetched(String term,
+            AutocompleteSuggestionCollector collector, boolean lookahead) {
+        JsonObject options = createPageOptions(collector, lookahead);
+        callFunction("setPrefetchedSuggestions", term,
+                encodeSuggestions(collector.getSuggestions()), options);
+    }
+
+    /**
+     * Creates the {@link AutocompleteSuggestionCollector} for the given
+     * query.
+     *
+     * @param query The query.
+     * @return A new {@link AutocompleteSuggestionCollector}.
+     */
+    private AutocompleteSuggestionCollector createCollector(AutocompleteQuery query) {
+        return new AutocompleteSuggestionCollector(query.getLimit(),
+                isPaging() && query.hasLimit());
+    }
+
+    /**
+     * Sends a page of suggestions to the client-side.
+     * <p>
+     * If a plain {@link CollectionSuggestionProvider} has found fewer
+     * suggestions than the limit, the response is marked as complete together
+     * with the way the provider matches its values. The client-side can answer
+     * longer terms starting with the same term by filtering the complete
+     * suggestions itself, because they can only match a subset of them.
+     * </p>
+     *
+     * @param requestId Request id to send back to the client-side.
+     * @param collector The collected suggestions.
+     * @param lookahead The provider has been asked for one suggestion beyond
+     * the limit. Otherwise a full page counts as "has more".
+     */
+    private void sendPage(JsonValue requestId,
+            AutocompleteSuggestionCollector collector, boolean lookahead) {
+        JsonObject options = createPageOptions(collector, lookahead);
+        CollectionSuggestionProvider provider = getClientMatchableProvider();
+        if (provider != null && !collector.isFull()) {
+            options.put("complete", createMatchOptions(provider));
+        }
+        callFunction("setSuggestions", requestId,
+                encodeSuggestions(collector.getSuggestions()), options);
+    }
+
+    /**
+     * Creates the options sent with a page of suggestions.
+     *
+     * @param collector The collected suggestions.
+     * @param lookahead The provider has been asked for one suggestion beyond
+     * the limit. Otherwise a full page counts as "has more".
+     * @return The options.
+     */
+    private JsonObject createPageOptions(AutocompleteSuggestionCollector collector,
+            boolean lookahead) {
+        JsonObject options = Json.createObject();
+        if (isPaging() && (collector.hasMore()
+                || collector.isFull() && !lookahead)) {
+            options.put("hasMore", true);
+        }
+        return options;
+    }
+
+    /**
+     * Checks whether paging applies to the queries of the current suggestion
+     * provider. Paging is not used with staged providers.
+     *
+     * @return Paging is active.
+     */
+    private boolean isPaging() {
+        return pagingEnabled
+                && !(suggestionProvider instanceof AutocompleteStagedSuggestionProvider);
+    }
+
+    /**
+     * Executes the given stage of the active
+     * {@link AutocompleteStagedSuggestionProvider} and sends the new
+     * suggestions to the client-side.
+     * <p>
+     * Stage {@code 0} starts a new query. Following stages continue the query
+     * with the same {@code requestId}. Stages that don't find any new
+     * suggestions are skipped, so the client-side does not have to ask for
+     * them.
+     * </p>
+     *
+     * @param requestId Request id to send back to the client-side.
+     * @param term The search term.
+     * @param stage The stage to execute.
+     */
+    protected void queryStage(JsonValue requestId, String term, int stage) {
+        AutocompleteStagedSuggestionProvider provider
+                = (AutocompleteStagedSuggestionProvider) suggestionProvider;
+        String requestKey = requestId.toJson();
+        if (stage == 0) {
+            stagedQuery = new StagedQuery(requestKey,
+                    new AutocompleteQuery(this, term, suggestionLimit));
+        }
+        StagedQuery staged = stagedQuery;
+        JsonObject options = Json.createObject();
+        if (staged == null || !staged.isNextStage(requestKey, stage)) {
+            // query has been superseded by a newer one
+            callFunction("setSuggestions", requestId, Json.createArray(), options);
+            return;
+        }
+
+        Set<AutocompleteSuggestion> suggestions;
+        long start = System.nanoTime();
+        do {
+            suggestions = staged.queryNextStage(provider);
+        } while (suggestions.isEmpty() && staged.hasNextStage(provider));
+        recordQuery(staged.getQuery(), System.nanoTime() - start, 0);
+
+        if (staged.hasNextStage(provider)) {
+            options.put("next", staged.getStage());
+        } else {
+            stagedQuery = null;
+        }
+        callFunction("setSuggestions", requestId, encodeSuggestions(suggestions),
+                options);
+    }
+
+    /**
+     * Converts the given {@link AutocompleteSuggestion} into a
+     * {@link JsonValue} representation because {@link JsonCodec} can't handle
+     * it itself.
+     * <p>
+     * The suggestions are encoded column by column to keep the payload small:
+     * </p>
+     * <pre>
+     * {
+     *   "value": ["Java", "JavaScript"],
+     *   "description": [null, "Web"],
+     *   "icon": ["i1", "i1"],
+     *   "styleNames": [[0], [0, 1]],
+     *   "styles": ["lang", "web"]
+     * }
+     * </pre>
+     * <p>
+     * Columns without any value are omitted. The style names are indexes into
+     * the {@code "styles"} table. The client-side also accepts the legacy
+     * format, an array of objects with one property per column.
+     * </p>
+     * <p>
+     * Suggestions that have already been sent by the previous call are only
+     * referenced by their position in the previous result, e.g.
+     * {@code "ref": [2, -1, 0]}. The columns only contain the suggestions
+     * with the reference {@code -1}. The client-side rebuilds the result from
+     * its copy of the previous result.
+     * </p>
+     *
+     * @param suggestions Suggestions.
+     * @return {@link JsonValue} representation.
+     */
+    protected JsonValue suggestionsToJson(Set<AutocompleteSuggestion> suggestions) {
+        JsonArray values = Json.createArray();
+        JsonArray descriptions = Json.createArray();
+        JsonArray icons = Json.createArray();
+        JsonArray styleNameColumn = Json.createArray();
+        JsonArray styles = Json.createArray();
+        Map<String, Integer> styleIndexes = new HashMap<String, Integer>();
+        boolean hasDescriptions = false;
+        boolean hasIcons = false;
+        boolean hasStyleNames = false;
+        JsonArray refs = Json.createArray();
+        boolean hasRefs = false;
+        Map<SentSuggestion, Integer> sent = new HashMap<SentSuggestion, Integer>();
+        Set<String> usedIconKeys = new HashSet<String>();
+        int position = 0;
+        int i = 0;
+        for (AutocompleteSuggestion suggestion : suggestions) {
+            String value = suggestion.getValue();
+            String description = suggestion.getDescription();
+            Resource icon = suggestion.getIcon();
+            String iconKey = null;
+            if (icon != null) {
+                iconKey = registerIcon(icon);
+                usedIconKeys.add(iconKey);
+            }
+            List<String> styleNames = null;
+            if (suggestion.getStyleNames() != null) {
+                styleNames = new ArrayList<String>(suggestion.getStyleNames());
+                styleNames.removeAll(Collections.singleton(null));
+            }
+
+            SentSuggestion entry = new SentSuggestion(value, description,
+                    iconKey, styleNames);
+            Integer ref = previousSuggestions.get(entry);
+            if (!sent.containsKey(entry)) {
+                sent.put(entry, position);
+            }
+            if (ref != null) {
+                // the client-side already has it
+                refs.set(position++, ref);
+                hasRefs = true;
+                continue;
+            }
+            refs.set(position++, -1);
+
+            values.set(i, value != null
+                    ? Json.create(value) : Json.createNull());
+            if (description != null) {
+                descriptions.set(i, description);
+                hasDescriptions = true;
+            } else {
+                descriptions.set(i, Json.createNull());
+            }
+            if (iconKey != null) {
+                icons.set(i, iconKey);
+                hasIcons = true;
+            } else {
+                icons.set(i, Json.createNull());
+            }
+            if (styleNames != null) {
+                JsonArray styleNamesArray = Json.createArray();
+                int s = 0;
+                for (String styleName : styleNames) {
+                    Integer index = styleIndexes.get(styleName);
+                    if (index == null) {
+                        index = styleIndexes.size();
+                        styleIndexes.put(styleName, index);
+                        styles.set(index, styleName);
+                    }
+                    styleNamesArray.set(s++, index);
+                }
+                styleNameColumn.set(i, styleNamesArray);
+                hasStyleNames = true;
+            } else {
+                styleNameColumn.set(i, Json.createNull());
+            }
+            ++i;
+        }
+        releaseIcons(usedIconKeys);
+        previousSuggestions = sent;
+
+        JsonObject object = Json.createObject();
+        if (hasRefs) {
+            object.put("ref", refs);
+        }
+        object.put("value", values);
+        if (hasDescriptions) {
+            object.put("description", descriptions);
+        }
+        if (hasIcons) {
+            object.put("icon", icons);
+        }
+        if (hasStyleNames) {
+            object.put("styleNames", styleNameColumn);
+            object.put("styles", styles);
+        }
+        return object;
+    }
+
+    /**
+     * Registers the given icon as resource of this extension, unless it is
+     * already registered.
+     * <p>
+     * Icons are identified by their URL, theme path or font codepoint if
+     * possible, or by identity otherwise. An already registered icon keeps
+     * its key, so it isn't sent to the client-side again.
+     * </p>
+     *
+     * @param icon The icon.
+     * @return The resource key of the icon.
+     */
+    private String registerIcon(Resource icon) {
+        Object identity = getIconIdentity(icon);
+        String key = iconKeys.get(identity);
+        if (key == null) {
+            key = "icon-" + iconKeyCounter++;
+            iconKeys.put(identity, key);
+            setResource(key, icon);
+        }
+        return key;
+    }
+
+    /**
+     * Unregisters the least recently used icons that exceed
+     * the icon registry size and are not used by the current response.
+     *
+     * @param usedIconKeys Keys of the icons used by the current response.
+     */
+    private void releaseIcons(Set<String> usedIconKeys) {
+        Iterator<String> i = iconKeys.values().iterator();
+        while (iconKeys.size() > iconRegistrySize && i.hasNext()) {
+            String key = i.next();
+            if (!usedIconKeys.contains(key)) {
+                i.remove();
+                setResource(key, null);
+            }
+        }
+    }
+
+    /**
+     * Gets the object used to identify the given icon in the icon registry.
+     *
+     * @param icon The icon.
+     * @return The identity of the icon.
+     */
+    private static Object getIconIdentity(Resource icon) {
+        if (icon instanceof ExternalResource) {
+            return "external:" + ((ExternalResource) icon).getURL();
+        } else if (icon instanceof ThemeResource) {
+            return "theme:" + ((ThemeResource) icon).getResourceId();
+        } else if (icon instanceof FontIcon) {
+            FontIcon fontIcon = (FontIcon) icon;
+            return "font:" + fontIcon.getFontFamily() + "/"
+                    + fontIcon.getCodepoint();
+        }
+        return new IconIdentity(icon);
+    }
+
+    /**
+     * Gets an optional integer option.
+     *
+     * @param options The options or {@code null}.
+     * @param key The option key.
+     * @param defaultValue Value used if the option is not set.
+     * @return The option value.
+     */
+    private static int getInt(JsonObject options, String key, int defaultValue) {
+        if (options == null || !options.hasKey(key)
+                || options.get(key).getType() != JsonType.NUMBER) {
+            return defaultValue;
+        }
+        return (int) options.getNumber(key);
+    }
+
+    /**
+     * Gets a {@link Logger} instance for this class.
+     *
+     * @return {@link Logger} instance for this class.
+     */
+    private Logger getLogger() {
+        return Logger.getLogger(AutocompleteTextFieldExtension.class.getName());
+    }
+
+    /**
+     * Gets the active {@link AutocompleteSuggestionProvider}.
+     *
+     * @return The active {@link AutocompleteSuggestionProvider}.
+     */
+    public AutocompleteSuggestionProvider getSuggestionProvider() {
+        return suggestionProvider;
+    }
+
+    /**
+     * Sets the active {@link AutocompleteSuggestionProvider}.
+     *
+     * @param suggestionProvider The active
+     * {@link AutocompleteSuggestionProvider}.
+     */
+    public void setSuggestionProvider(AutocompleteSuggestionProvider suggestionProvider) {
+        this.suggestionProvider = suggestionProvider;
+        invalidateDictionary();
+    }
+
+    /**
+     * Sets the active {@link AutocompleteSuggestionProvider}.
+     *
+     * @param suggestionProvider The active
+     * {@link AutocompleteSuggestionProvider}.
+     * @return this (for method chaining)
+     * @see
+     * #setSuggestionProvider(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider)
+     */
+    public AutocompleteTextFieldExtension withSuggestionProvider(AutocompleteSuggestionProvider suggestionProvider) {
+        setSuggestionProvider(suggestionProvider);
+        return this;
+    }
+
+    /**
+     * Gets the maximum number of suggestions that are allowed.
+     * <p>
+     * If the active {@link AutocompleteSuggestionProvider} returns more
+     * suggestions than allowed, the excess suggestions will be ignored!
+     * </p>
+     * <p>
+     * If {@code limit <= 0} the suggestions won't be limited.
+     * </p>
+     *
+     * @return Maximum number of suggestions.
+     */
+    public int getSuggestionLimit() {
+        return suggestionLimit;
+    }
+
+    /**
+     * Sets the maximum number of suggestions that are allowed.
+     * <p>
+     * If the active {@link AutocompleteSuggestionProvider} returns more
+     * suggestions than allowed, the excess suggestions will be ignored!
+     * </p>
+     * <p>
+     * If limit &lt;= 0 the suggestions won't be limited.
+     * </p>
+     *
+     * @param suggestionLimit Maximum number of suggestions.
+     */
+    public void setSuggestionLimit(int suggestionLimit) {
+        this.suggestionLimit = suggestionLimit;
+        invalidateDictionary();
+        updateCacheId();
+    }
+
+    /**
+     * Sets the maximum number of suggestions that are allowed.
+     * <p>
+     * If the active {@link AutocompleteSuggestionProvider} returns more
+     * suggestions than allowed, the excess suggestions will be ignored!
+     * </p>
+     * <p>
+     * If limit &lt;= 0 the suggestions won't be limited.
+     * </p>
+     *
+     * @param suggestionLimit Maximum number of suggestions.
+     * @return this (for method chaining)
+     * @see #setSuggestionLimit(int)
+     */
+    public AutocompleteTextFieldExtension withSuggestionLimit(int suggestionLimit) {
+        setSuggestionLimit(suggestionLimit);
+        return this;
+    }
+
+    /**
+     * Checks if the client-side loads further pages of suggestions when the
+     * user scrolls to the end of the suggestions.
+     *
+     * @return Paging is enabled.
+     */
+    public boolean isPagingEnabled() {
+        return pagingEnabled;
+    }
+
+    /**
+     * Sets if the client-side loads further pages of suggestions when the user
+     * scrolls to the end of the suggestions.
+     * <p>
+     * The page size is the suggestion limit. The active
+     * {@link AutocompleteSuggestionProvider} has to respect
+     * {@link AutocompleteQuery#getOffset()}. Paging is not used with an
+     * {@link AutocompleteStagedSuggestionProvider}.
+     * </p>
+     *
+     * @param pagingEnabled Enable paging.
+     * @see #setSuggestionLimit(int)
+     */
+    public void setPagingEnabled(boolean pagingEnabled) {
+        this.pagingEnabled = pagingEnabled;
+        invalidateDictionary();
+        updateCacheId();
+    }
+
+    /**
+     * Sets if the client-side loads further pages of suggestions when the user
+     * scrolls to the end of the suggestions.
+     *
+     * @param pagingEnabled Enable paging.
+     * @return this (for method chaining)
+     * @see #setPagingEnabled(boolean)
+     */
+    public AutocompleteTextFieldExtension withPagingEnabled(boolean pagingEnabled) {
+        setPagingEnabled(pagingEnabled);
+        return this;
+    }
+
+    /**
+     * Gets the number of suggestion icons that stay registered after the
+     * response that has used them.
+     *
+     * @return The number of registered icons.
+     * @see #setIconRegistrySize(int)
+     */
+    public int getIconRegistrySize() {
+        return iconRegistrySize;
+    }
+
+    /**
+     * Sets the number of suggestion icons that stay registered after the
+     * response that has used them.
+     * <p>
+     * Each distinct icon is sent to the client-side once. Beyond this number
+     * the least recently used icons that the current response doesn't use are
+     * released. Suggestions the client-side still shows or keeps from an
+     * earlier response, e.g. a previous page or a cached result, are rendered
+     * without their icon once it has been released. With {@code 0} only the
+     * icons of the current response are registered. The default is
+     * {@code 100}.
+     * </p>
+     *
+     * @param iconRegistrySize The number of registered icons.
+     */
+    public void setIconRegistrySize(int iconRegistrySize) {
+        this.iconRegistrySize = Math.max(iconRegistrySize, 0);
+    }
+
+    /**
+     * Sets the number of suggestion icons that stay registered after the
+     * response that has used them.
+     *
+     * @param iconRegistrySize The number of registered icons.
+     * @return this (for method chaining)
+     * @see #setIconRegistrySize(int)
+     */
+    public AutocompleteTextFieldExtension withIconRegistrySize(int iconRegistrySize) {
+        setIconRegistrySize(iconRegistrySize);
+        return this;
+    }
+
+    /**
+     * Gets the {@link AutocompleteRateLimiter} that limits the rate of
+     * queries passed to the suggestion provider.
+     *
+     * @return The {@link AutocompleteRateLimiter} or {@code null}.
+     */
+    public AutocompleteRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the rate of
+     * queries passed to the suggestion provider.
+     * <p>
+     * Excess queries are not passed to the provider. The client-side retries
+     * them when the limiter has a token again, unless the user has typed on
+     * in the meantime. Share one limiter between extensions to limit them
+     * together, e.g. per session with
+     * {@link AutocompleteRateLimiter#forSession(com.vaadin.server.VaadinSession, int, double)}.
+     * </p>
+     * <p>
+     * Rejected queries are logged at {@link Level#INFO} at most once per
+     * minute across all extensions, together with the number of rejections
+     * that have not been logged since. The others are logged at
+     * {@link Level#FINE}.
+     * </p>
+     *
+     * @param rateLimiter The {@link AutocompleteRateLimiter} or {@code null}
+     * for no limit.
+     */
+    public void setRateLimiter(AutocompleteRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the rate of
+     * queries passed to the suggestion provider.
+     *
+     * @param rateLimiter The {@link AutocompleteRateLimiter} or {@code null}
+     * for no limit.
+     * @return this (for method chaining)
+     * @see
+     * #setRateLimiter(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter)
+     */
+    public AutocompleteTextFieldExtension withRateLimiter(AutocompleteRateLimiter rateLimiter) {
+        setRateLimiter(rateLimiter);
+        return this;
+    }
+
+    /**
+     * Gets the {@link AutocompleteMetrics} receiving measurements of the query
+     * pipeline.
+     *
+     * @return The {@link AutocompleteMetrics} or {@code null}.
+     */
+    public AutocompleteMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the {@link AutocompleteMetrics} receiving measurements of the
+     * query pipeline: the time spent in the provider, trimming the results to
+     * the limit and converting them to JSON, the number of sent suggestions
+     * and the searches the client-side has answered itself.
+     *
+     * @param metrics The {@link AutocompleteMetrics} or {@code null}.
+     * @see JmxAutocompleteMetrics
+     */
+    public void setMetrics(AutocompleteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the {@link AutocompleteMetrics} receiving measurements of the
+     * query pipeline.
+     *
+     * @param metrics The {@link AutocompleteMetrics} or {@code null}.
+     * @return this (for method chaining)
+     * @see
+     * #setMetrics(eu.maxschuster.vaadin.autocompletetextfield.metrics.AutocompleteMetrics)
+     */
+    public AutocompleteTextFieldExtension withMetrics(AutocompleteMetrics metrics) {
+        setMetrics(metrics);
+        return this;
+    }
+
+    /**
+     * Gets the number of milliseconds a query has to take to get logged.
+     *
+     * @return The slow query threshold in milliseconds, 0 if the slow query
+     * log is disabled.
+     */
+    public int getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    /**
+     * Sets the number of milliseconds a query has to take to get logged.
+     * <p>
+     * Slow queries are logged with {@link Level#INFO} and contain the term,
+     * the limit, the provider class, the number of suggestions and the time
+     * spent in the provider, trimming and serializing the results. The log is
+     * sampled by the slow query sampler, so slow providers can't flood it.
+     * </p>
+     *
+     * @param slowQueryThreshold The slow query threshold in milliseconds, 0
+     * to disable the slow query log.
+     * @see
+     * #setSlowQuerySampler(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter)
+     */
+    public void setSlowQueryThreshold(int slowQueryThreshold) {
+        if (slowQueryThreshold < 0) {
+            throw new IllegalArgumentException("slowQueryThreshold is negative!");
+        }
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    /**
+     * Sets the number of milliseconds a query has to take to get logged.
+     *
+     * @param slowQueryThreshold The slow query threshold in milliseconds, 0
+     * to disable the slow query log.
+     * @return this (for method chaining)
+     * @see #setSlowQueryThreshold(int)
+     */
+    public AutocompleteTextFieldExtension withSlowQueryThreshold(int slowQueryThreshold) {
+        setSlowQueryThreshold(slowQueryThreshold);
+        return this;
+    }
+
+    /**
+     * Gets the bounds of the adaptive delay and minimum number of characters.
+     *
+     * @return The {@link AutocompleteAdaptiveTuning} or {@code null} if the
+     * adaptive mode is disabled.
+     */
+    public AutocompleteAdaptiveTuning getAdaptiveTuning() {
+        return adaptiveTuning;
+    }
+
+    /**
+     * Enables the adaptive mode with the given bounds.
+     * <p>
+     * The extension measures the latency of its suggestion provider and the
+     * number of suggestions it returns and adjusts the delay and the minimum
+     * number of characters within the given bounds. While the adaptive mode is
+     * enabled, it overrides values set by {@link #setDelay(int)} and
+     * {@link #setMinChars(int)}. Enabling it starts with the lower bounds,
+     * disabling it keeps the last adapted values.
+     * </p>
+     *
+     * @param adaptiveTuning The {@link AutocompleteAdaptiveTuning} or
+     * {@code null} to disable the adaptive mode.
+     */
+    public void setAdaptiveTuning(AutocompleteAdaptiveTuning adaptiveTuning) {
+        this.adaptiveTuning = adaptiveTuning;
+        latencyAverage = -1;
+        resultSizeAverage = -1;
+        if (adaptiveTuning != null) {
+            AutocompleteTextFieldExtensionState state = getState();
+            state.delay = adaptiveTuning.getMinDelay();
+            state.minChars = adaptiveTuning.getMinMinChars();
+        }
+    }
+
+    /**
+     * Enables the adaptive mode with the given bounds.
+     *
+     * @param adaptiveTuning The {@link AutocompleteAdaptiveTuning} or
+     * {@code null} to disable the adaptive mode.
+     * @return this (for method chaining)
+     * @see #setAdaptiveTuning(AutocompleteAdaptiveTuning)
+     */
+    public AutocompleteTextFieldExtension withAdaptiveTuning(
+            AutocompleteAdaptiveTuning adaptiveTuning) {
+        setAdaptiveTuning(adaptiveTuning);
+        return this;
+    }
+
+    /**
+     * Gets the {@link AutocompleteRateLimiter} that limits the number of
+     * logged slow queries.
+     *
+     * @return The {@link AutocompleteRateLimiter} or {@code null} if the
+     * shared sampler is used.
+     */
+    public AutocompleteRateLimiter getSlowQuerySampler() {
+        return slowQuerySampler;
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the number of
+     * logged slow queries. By default all extensions share a limiter that
+     * allows 10 messages per minute.
+     *
+     * @param slowQuerySampler The {@link AutocompleteRateLimiter} or
+     * {@code null} to use the shared sampler.
+     */
+    public void setSlowQuerySampler(AutocompleteRateLimiter slowQuerySampler) {
+        this.slowQuerySampler = slowQuerySampler;
+    }
+
+    /**
+     * Sets the {@link AutocompleteRateLimiter} that limits the number of
+     * logged slow queries.
+     *
+     * @param slowQuerySampler The {@link AutocompleteRateLimiter} or
+     * {@code null} to use the shared sampler.
+     * @return this (for method chaining)
+     * @see
+     * #setSlowQuerySampler(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter)
+     */
+    public AutocompleteTextFieldExtension withSlowQuerySampler(AutocompleteRateLimiter slowQuerySampler) {
+        setSlowQuerySampler(slowQuerySampler);
+        return this;
+    }
+
+    /**
+     * Gets the max number of values of a {@link CollectionSuggestionProvider}
+     * that are shipped to the client-side as dictionary.
+     *
+     * @return The dictionary threshold, 0 if the dictionary mode is disabled.
+     */
+    public int getDictionaryThreshold() {
+        return dictionaryThreshold;
+    }
+
+    /**
+     * Sets the max number of values of a {@link CollectionSuggestionProvider}
+     * that are shipped to the client-side as dictionary.
+     * <p>
+     * If the suggestion provider is a {@link CollectionSuggestionProvider}
+     * with no more values than the threshold, its values are sent to the
+     * client-side once and filtered there with the same {@link MatchMode} and
+     * case sensitivity, without a round trip per search. Larger collections,
+     * subclasses of {@link CollectionSuggestionProvider} and other providers
+     * are queried on the server-side as usual.
+     * </p>
+     * <p>
+     * The values are sent again when the
+     * {@link CollectionSuggestionProvider#getVersion() version} of the
+     * provider has changed and this extension sends its next response. Call
+     * {@link #markAsDirty()} after changing the values of the provider to
+     * update the client-side right away.
+     * </p>
+     *
+     * @param dictionaryThreshold The dictionary threshold, 0 to disable the
+     * dictionary mode.
+     */
+    public void setDictionaryThreshold(int dictionaryThreshold) {
+        if (dictionaryThreshold < 0) {
+            throw new IllegalArgumentException("dictionaryThreshold is negative!");
+        }
+        this.dictionaryThreshold = dictionaryThreshold;
+        invalidateDictionary();
+    }
+
+    /**
+     * Sets the max number of values of a {@link CollectionSuggestionProvider}
+     * that are shipped to the client-side as dictionary.
+     *
+     * @param dictionaryThreshold The dictionary threshold, 0 to disable the
+     * dictionary mode.
+     * @return this (for method chaining)
+     * @see #setDictionaryThreshold(int)
+     */
+    public AutocompleteTextFieldExtension withDictionaryThreshold(int dictionaryThreshold) {
+        setDictionaryThreshold(dictionaryThreshold);
+        return this;
+    }
+
+    /**
+     * Checks if suggestions are requested in advance when the textfield gets
+     * focused.
+     *
+     * @return Prefetching is enabled.
+     */
+    public boolean isPrefetchEnabled() {
+        return getState(false).prefetchEnabled;
+    }
+
+    /**
+     * Sets if suggestions are requested in advance when the textfield gets
+     * focused.
+     * <p>
+     * The suggestions for the current text of the textfield and for the
+     * prefetch terms are sent to the client-side, which shows them without a
+     * round trip to the server-side once the user has typed one of them.
+     * </p>
+     *
+     * @param prefetchEnabled Enable prefetching.
+     * @see #setPrefetchTerms(java.util.Collection)
+     */
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        getState().prefetchEnabled = prefetchEnabled;
+    }
+
+    /**
+     * Sets if suggestions are requested in advance when the textfield gets
+     * focused.
+     *
+     * @param prefetchEnabled Enable prefetching.
+     * @return this (for method chaining)
+     * @see #setPrefetchEnabled(boolean)
+     */
+    public AutocompleteTextFieldExtension withPrefetchEnabled(boolean prefetchEnabled) {
+        setPrefetchEnabled(prefetchEnabled);
+        return this;
+    }
+
+    /**
+     * Gets an unmodifiable {@link Set} of the terms queried in advance when
+     * the textfield gets focused.
+     *
+     * @return The prefetch terms.
+     */
+    public Set<String> getPrefetchTerms() {
+        return Collections.unmodifiableSet(prefetchTerms);
+    }
+
+    /**
+     * Sets the terms queried in advance when the textfield gets focused, e.g.
+     * the most common prefixes with the minimum number of characters.
+     *
+     * @param prefetchTerms The prefetch terms or {@code null}.
+     * @see #setPrefetchEnabled(boolean)
+     */
+    public void setPrefetchTerms(Collection<String> prefetchTerms) {
+        this.prefetchTerms.clear();
+        if (prefetchTerms != null) {
+            for (String term : prefetchTerms) {
+                if (term != null) {
+                    this.prefetchTerms.add(term);
                 }
-                object.put("styleNames", styleNamesArray);
-            } else {
-                object.put("styleNames", Json.createNull());
             }
-
-            array.set(i++, object);
         }
-        return array;
     }
 
     /**
-     * Gets a {@link Logger} instance for this class.
+     * Sets the terms queried in advance when the textfield gets focused.
      *
-     * @return {@link Logger} instance for this class.
+     * @param prefetchTerms The prefetch terms.
+     * @return this (for method chaining)
+     * @see #setPrefetchTerms(java.util.Collection)
      */
-    private Logger getLogger() {
-        return Logger.getLogger(AutocompleteTextFieldExtension.class.getName());
+    public AutocompleteTextFieldExtension withPrefetchTerms(String... prefetchTerms) {
+        setPrefetchTerms(Arrays.asList(prefetchTerms));
+        return this;
     }
 
     /**
-     * Gets the active {@link AutocompleteSuggestionProvider}.
+     * Gets the number of suggestions above which the client-side renders
+     * only the visible suggestions.
      *
-     * @return The active {@link AutocompleteSuggestionProvider}.
+     * @return The virtual rendering threshold, 0 if disabled.
      */
-    public AutocompleteSuggestionProvider getSuggestionProvider() {
-        return suggestionProvider;
+    public int getVirtualRenderingThreshold() {
+        return getState(false).virtualRenderingThreshold;
     }
 
     /**
-     * Sets the active {@link AutocompleteSuggestionProvider}.
+     * Sets the number of suggestions above which the client-side renders
+     * only the visible suggestions.
+     * <p>
+     * Instead of one element per suggestion, a small pool of rows covering
+     * the visible suggestions plus a buffer is recycled while the suggestions
+     * container scrolls. All rows get the height of the tallest row. Useful
+     * for large or unlimited results.
+     * </p>
      *
-     * @param suggestionProvider The active
-     * {@link AutocompleteSuggestionProvider}.
+     * @param virtualRenderingThreshold The virtual rendering threshold, 0 to
+     * disable the virtual rendering.
      */
-    public void setSuggestionProvider(AutocompleteSuggestionProvider suggestionProvider) {
-        this.suggestionProvider = suggestionProvider;
+    public void setVirtualRenderingThreshold(int virtualRenderingThreshold) {
+        if (virtualRenderingThreshold < 0) {
+            throw new IllegalArgumentException("virtualRenderingThreshold is negative!");
+        }
+        getState().virtualRenderingThreshold = virtualRenderingThreshold;
     }
 
     /**
-     * Sets the active {@link AutocompleteSuggestionProvider}.
+     * Sets the number of suggestions above which the client-side renders
+     * only the visible suggestions.
      *
-     * @param suggestionProvider The active
-     * {@link AutocompleteSuggestionProvider}.
+     * @param virtualRenderingThreshold The virtual rendering threshold, 0 to
+     * disable the virtual rendering.
      * @return this (for method chaining)
-     * @see
-     * #setSuggestionProvider(eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider)
+     * @see #setVirtualRenderingThreshold(int)
      */
-    public AutocompleteTextFieldExtension withSuggestionProvider(AutocompleteSuggestionProvider suggestionProvider) {
-        setSuggestionProvider(suggestionProvider);
+    public AutocompleteTextFieldExtension withVirtualRenderingThreshold(int virtualRenderingThreshold) {
+        setVirtualRenderingThreshold(virtualRenderingThreshold);
         return this;
     }
 
     /**
-     * Gets the maximum number of suggestions that are allowed.
-     * <p>
-     * If the active {@link AutocompleteSuggestionProvider} returns more
-     * suggestions than allowed, the excess suggestions will be ignored!
-     * </p>
-     * <p>
-     * If {@code limit <= 0} the suggestions won't be limited.
-     * </p>
+     * Checks if suggestions are rendered by cloning a template.
      *
-     * @return Maximum number of suggestions.
+     * @return {@code true} if template rendering is enabled.
      */
-    public int getSuggestionLimit() {
-        return suggestionLimit;
+    public boolean isTemplateRenderingEnabled() {
+        return getState(false).templateRenderingEnabled;
     }
 
     /**
-     * Sets the maximum number of suggestions that are allowed.
-     * <p>
-     * If the active {@link AutocompleteSuggestionProvider} returns more
-     * suggestions than allowed, the excess suggestions will be ignored!
-     * </p>
+     * Enables or disables rendering suggestions by cloning a template.
      * <p>
-     * If limit &lt;= 0 the suggestions won't be limited.
+     * Instead of building an HTML string for every suggestion of every
+     * response, the client-side clones a prebuilt row and keys the rows by
+     * value. Rows of suggestions that haven't changed since the previous
+     * response are moved into place without being rendered again.
      * </p>
      *
-     * @param suggestionLimit Maximum number of suggestions.
+     * @param templateRenderingEnabled Enable template rendering.
      */
-    public void setSuggestionLimit(int suggestionLimit) {
-        this.suggestionLimit = suggestionLimit;
+    public void setTemplateRenderingEnabled(boolean templateRenderingEnabled) {
+        getState().templateRenderingEnabled = templateRenderingEnabled;
     }
 
     /**
-     * Sets the maximum number of suggestions that are allowed.
-     * <p>
-     * If the active {@link AutocompleteSuggestionProvider} returns more
-     * suggestions than allowed, the excess suggestions will be ignored!
-     * </p>
-     * <p>
-     * If limit &lt;= 0 the suggestions won't be limited.
-     * </p>
+     * Enables or disables rendering suggestions by cloning a template.
      *
-     * @param suggestionLimit Maximum number of suggestions.
+     * @param templateRenderingEnabled Enable template rendering.
      * @return this (for method chaining)
-     * @see #setSuggestionLimit(int)
+     * @see #setTemplateRenderingEnabled(boolean)
      */
-    public AutocompleteTextFieldExtension withSuggestionLimit(int suggestionLimit) {
-        setSuggestionLimit(suggestionLimit);
+    public AutocompleteTextFieldExtension withTemplateRenderingEnabled(boolean templateRenderingEnabled) {
+        setTemplateRenderingEnabled(templateRenderingEnabled);
         return this;
     }
 
@@ -545,6 +2025,184 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
         return this;
     }
 
+    /**
+     * Gets the max number of searched terms whose suggestions are cached by
+     * the client-side.
+     *
+     * @return The max number of cached terms.
+     */
+    public int getCacheSize() {
+        return getState(false).cacheSize;
+    }
+
+    /**
+     * Sets the max number of searched terms whose suggestions are cached by
+     * the client-side. The least recently used terms are removed first.
+     * Defaults to 100. Use {@link Integer#MAX_VALUE} for the unbounded cache
+     * of earlier versions.
+     *
+     * @param cacheSize The max number of cached terms (&gt;= 1).
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be >= 1!");
+        }
+        getState().cacheSize = cacheSize;
+    }
+
+    /**
+     * Sets the max number of searched terms whose suggestions are cached by
+     * the client-side.
+     *
+     * @param cacheSize The max number of cached terms (&gt;= 1).
+     * @return this (for method chaining)
+     * @see #setCacheSize(int)
+     */
+    public AutocompleteTextFieldExtension withCacheSize(int cacheSize) {
+        setCacheSize(cacheSize);
+        return this;
+    }
+
+    /**
+     * Gets the time after which suggestions cached by the client-side expire.
+     *
+     * @return The time to live in milliseconds, 0 if cached suggestions never
+     * expire.
+     */
+    public int getCacheTtl() {
+        return getState(false).cacheTtl;
+    }
+
+    /**
+     * Sets the time after which suggestions cached by the client-side expire.
+     * Defaults to 5 minutes. Earlier versions never expired cached
+     * suggestions.
+     *
+     * @param cacheTtl The time to live in milliseconds, 0 if cached
+     * suggestions should never expire.
+     */
+    public void setCacheTtl(int cacheTtl) {
+        if (cacheTtl < 0) {
+            throw new IllegalArgumentException("cacheTtl is negative!");
+        }
+        getState().cacheTtl = cacheTtl;
+    }
+
+    /**
+     * Sets the time after which suggestions cached by the client-side expire.
+     *
+     * @param cacheTtl The time to live in milliseconds, 0 if cached
+     * suggestions should never expire.
+     * @return this (for method chaining)
+     * @see #setCacheTtl(int)
+     */
+    public AutocompleteTextFieldExtension withCacheTtl(int cacheTtl) {
+        setCacheTtl(cacheTtl);
+        return this;
+    }
+
+    /**
+     * Gets the id of the client-side cache shared with other extensions.
+     *
+     * @return The cache id or {@code null} if the extension has a cache of its
+     * own.
+     */
+    public String getCacheId() {
+        return cacheId;
+    }
+
+    /**
+     * Sets the id of the client-side cache shared with other extensions.
+     * <p>
+     * Textfields with the same cache id, e.g. "from city" and "to city", share
+     * their cached suggestions, and a query one of them has sent is not sent
+     * again by another one. Their suggestion providers have to return the same
+     * suggestions for the same term. The suggestion limit and paging are added
+     * to the id, so extensions differing in them never share results.
+     * </p>
+     *
+     * @param cacheId The cache id or {@code null} for a cache of its own.
+     */
+    public void setCacheId(String cacheId) {
+        this.cacheId = cacheId;
+        updateCacheId();
+    }
+
+    /**
+     * Sets the id of the client-side cache shared with other extensions.
+     *
+     * @param cacheId The cache id or {@code null} for a cache of its own.
+     * @return this (for method chaining)
+     * @see #setCacheId(java.lang.String)
+     */
+    public AutocompleteTextFieldExtension withCacheId(String cacheId) {
+        setCacheId(cacheId);
+        return this;
+    }
+
+    /**
+     * Gets the version of the suggestions the client-side cache is persisted
+     * with.
+     *
+     * @return The cache version or {@code null} if the cache isn't persisted.
+     */
+    public String getCacheVersion() {
+        return getState(false).cacheVersion;
+    }
+
+    /**
+     * Sets the version of the suggestions the client-side cache is persisted
+     * with.
+     * <p>
+     * If a cache id is set as well, the client-side stores its cache in the
+     * browser's local storage, so it survives page reloads. The stored cache
+     * is bounded by the cache size and discarded as soon as the version
+     * changes, so change it whenever the suggestions of the provider change,
+     * e.g. to the last modification time of the underlying data. Stored
+     * results still expire after the cache TTL, so raise it to keep them for
+     * longer. Results with icons aren't stored, because icons are only valid
+     * for the current page.
+     * </p>
+     * <p>
+     * Fields with the same cache id only share their cache if their cache
+     * versions are equal as well.
+     * </p>
+     *
+     * @param cacheVersion The cache version or {@code null} to disable the
+     * persistent cache.
+     * @see #setCacheId(java.lang.String)
+     */
+    public void setCacheVersion(String cacheVersion) {
+        getState().cacheVersion = cacheVersion;
+    }
+
+    /**
+     * Sets the version of the suggestions the client-side cache is persisted
+     * with.
+     *
+     * @param cacheVersion The cache version or {@code null} to disable the
+     * persistent cache.
+     * @return this (for method chaining)
+     * @see #setCacheVersion(java.lang.String)
+     */
+    public AutocompleteTextFieldExtension withCacheVersion(String cacheVersion) {
+        setCacheVersion(cacheVersion);
+        return this;
+    }
+
+    /**
+     * Publishes the cache id together with the settings that change the
+     * results in the shared state.
+     */
+    private void updateCacheId() {
+        String stateCacheId = cacheId != null
+                ? cacheId + "/" + suggestionLimit + "/" + pagingEnabled : null;
+        if (stateCacheId == null ? getState(false).cacheId != null
+                : !stateCacheId.equals(getState(false).cacheId)) {
+            getState().cacheId = stateCacheId;
+        }
+    }
+
     /**
      * Gets all user-defined CSS style names of the dropdown menu container. If
      * the component has multiple style names defined, the return string is a
@@ -670,4 +2328,271 @@ public class AutocompleteTextFieldExtension extends AbstractJavaScriptExtension
         return this;
     }
 
+    /**
+     * A query waiting to be executed by an
+     * {@link AutocompleteBatchSuggestionProvider}.
+     */
+    private static class BatchQuery implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AutocompleteTextFieldExtension extension;
+
+        private final JsonValue requestId;
+
+        private final AutocompleteQuery query;
+
+        public BatchQuery(AutocompleteTextFieldExtension extension,
+                JsonValue requestId, AutocompleteQuery query) {
+            this.extension = extension;
+            this.requestId = requestId;
+            this.query = query;
+        }
+
+    }
+
+    /**
+     * Collects the queries for {@link AutocompleteBatchSuggestionProvider}s
+     * received by all extensions of a session during one request.
+     */
+    private static class BatchCollector implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The collected queries grouped by provider
+         */
+        private final Map<AutocompleteBatchSuggestionProvider, List<BatchQuery>> batches
+                = new LinkedHashMap<AutocompleteBatchSuggestionProvider, List<BatchQuery>>();
+
+        public void add(AutocompleteBatchSuggestionProvider provider, BatchQuery query) {
+            List<BatchQuery> batch = batches.get(provider);
+            if (batch == null) {
+                batch = new ArrayList<BatchQuery>();
+                batches.put(provider, batch);
+            }
+            batch.add(query);
+        }
+
+        /**
+         * Executes one provider call per batch and sends the results to the
+         * extensions.
+         */
+        public void execute() {
+            for (Map.Entry<AutocompleteBatchSuggestionProvider, List<BatchQuery>> entry
+                    : batches.entrySet()) {
+                List<BatchQuery> batch = entry.getValue();
+                List<AutocompleteQuery> queries
+                        = new ArrayList<AutocompleteQuery>(batch.size());
+                for (BatchQuery batchQuery : batch) {
+                    queries.add(batchQuery.query);
+                }
+                long start = System.nanoTime();
+                Map<AutocompleteQuery, Collection<AutocompleteSuggestion>> results
+                        = entry.getKey().querySuggestions(queries);
+                // the time of the whole batch is split evenly between queries
+                long providerNanos = (System.nanoTime() - start) / batch.size();
+                for (BatchQuery batchQuery : batch) {
+                    AutocompleteTextFieldExtension extension = batchQuery.extension;
+                    QueryTiming timing = extension.beginTiming(
+                            System.nanoTime() - providerNanos);
+                    try {
+                        extension.recordQuery(batchQuery.query, providerNanos, 0);
+                        extension.sendBatchResult(batchQuery.requestId,
+                                batchQuery.query, results != null
+                                        ? results.get(batchQuery.query) : null);
+                    } finally {
+                        extension.endTiming(timing);
+                    }
+                }
+            }
+            batches.clear();
+        }
+
+    }
+
+    /**
+     * The timing breakdown of a query for the slow query log and the adaptive
+     * tuning.
+     */
+    private static class QueryTiming {
+
+        private final long startNanos;
+
+        private AutocompleteQuery query;
+
+        private long providerNanos;
+
+        private long trimNanos;
+
+        private long encodeNanos;
+
+        private int resultCount;
+
+        public QueryTiming(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+    }
+
+    /**
+     * Snapshot of an {@link AutocompleteSuggestion} as it has been sent to the
+     * client-side. Unlike {@link AutocompleteSuggestion} it compares all
+     * properties.
+     */
+    private static class SentSuggestion implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String value;
+
+        private final String description;
+
+        private final String iconKey;
+
+        private final List<String> styleNames;
+
+        public SentSuggestion(String value, String description,
+                String iconKey, List<String> styleNames) {
+            this.value = value;
+            this.description = description;
+            this.iconKey = iconKey;
+            this.styleNames = styleNames;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 5;
+            hash = 29 * hash + (value != null ? value.hashCode() : 0);
+            hash = 29 * hash + (description != null ? description.hashCode() : 0);
+            hash = 29 * hash + (iconKey != null ? iconKey.hashCode() : 0);
+            hash = 29 * hash + (styleNames != null ? styleNames.hashCode() : 0);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof SentSuggestion)) {
+                return false;
+            }
+            SentSuggestion other = (SentSuggestion) obj;
+            return equal(value, other.value)
+                    && equal(description, other.description)
+                    && equal(iconKey, other.iconKey)
+                    && equal(styleNames, other.styleNames);
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+    }
+
+    /**
+     * Identifies an icon {@link Resource} by identity.
+     */
+    private static class IconIdentity implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Resource icon;
+
+        public IconIdentity(Resource icon) {
+            this.icon = icon;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(icon);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IconIdentity
+                    && ((IconIdentity) obj).icon == icon;
+        }
+
+    }
+
+    /**
+     * State of a query that is executed stage by stage.
+     */
+    private static class StagedQuery implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The client-side request id
+         */
+        private final String requestKey;
+
+        /**
+         * The query
+         */
+        private final AutocompleteQuery query;
+
+        /**
+         * Suggestions sent by previous stages
+         */
+        private final Set<AutocompleteSuggestion> sent
+                = new LinkedHashSet<AutocompleteSuggestion>();
+
+        /**
+         * The next stage to execute
+         */
+        private int stage = 0;
+
+        public StagedQuery(String requestKey, AutocompleteQuery query) {
+            this.requestKey = requestKey;
+            this.query = query;
+        }
+
+        public boolean isNextStage(String requestKey, int stage) {
+            return this.requestKey.equals(requestKey) && this.stage == stage;
+        }
+
+        public boolean hasNextStage(AutocompleteStagedSuggestionProvider provider) {
+            boolean limitReached = query.hasLimit()
+                    && sent.size() >= query.getLimit();
+            return !limitReached && stage < provider.getStageCount();
+        }
+
+        /**
+         * Executes the next stage.
+         *
+         * @param provider The provider.
+         * @return Suggestions that haven't been sent by previous stages.
+         */
+        public Set<AutocompleteSuggestion> queryNextStage(
+                AutocompleteStagedSuggestionProvider provider) {
+            Collection<AutocompleteSuggestion> suggestions
+                    = provider.querySuggestions(query, stage++);
+            if (suggestions == null) {
+                return Collections.emptySet();
+            }
+            Set<AutocompleteSuggestion> added
+                    = new LinkedHashSet<AutocompleteSuggestion>();
+            for (AutocompleteSuggestion suggestion : suggestions) {
+                if (query.hasLimit() && sent.size() >= query.getLimit()) {
+                    break; // limit reached, ignore the following results
+                }
+                if (sent.add(suggestion)) {
+                    added.add(suggestion);
+                }
+            }
+            return added;
+        }
+
+        public AutocompleteQuery getQuery() {
+            return query;
+        }
+
+        public int getStage() {
+            return stage;
+        }
+
+    }
+
 }
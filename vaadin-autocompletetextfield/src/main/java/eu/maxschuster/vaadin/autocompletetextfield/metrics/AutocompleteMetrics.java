@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.metrics;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import java.io.Serializable;
+
+/**
+ * Receives measurements of the query pipeline of an
+ * {@link AutocompleteTextFieldExtension}.
+ * <p>
+ * Implementations are called on the request thread and should return
+ * quickly. A single instance may be shared between many extensions and
+ * sessions, so implementations have to be thread-safe.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteTextFieldExtension#setMetrics(eu.maxschuster.vaadin.autocompletetextfield.metrics.AutocompleteMetrics)
+ * @see JmxAutocompleteMetrics
+ */
+public interface AutocompleteMetrics extends Serializable {
+
+    /**
+     * Records the execution of a query.
+     *
+     * @param provider The queried {@link AutocompleteSuggestionProvider}.
+     * @param query The executed {@link AutocompleteQuery}.
+     * @param providerNanos Time spent in the provider in nanoseconds.
+     * @param trimNanos Time spent to cut the provider's result down to the
+     * query's limit in nanoseconds.
+     */
+    public void recordQuery(AutocompleteSuggestionProvider provider,
+            AutocompleteQuery query, long providerNanos, long trimNanos);
+
+    /**
+     * Records a response sent to the client-side.
+     *
+     * @param provider The queried {@link AutocompleteSuggestionProvider}.
+     * @param suggestionCount The number of sent suggestions.
+     * @param encodeNanos Time spent to convert the suggestions to JSON in
+     * nanoseconds.
+     */
+    public void recordResponse(AutocompleteSuggestionProvider provider,
+            int suggestionCount, long encodeNanos);
+
+    /**
+     * Records searches of the client-side. Hits have been answered without a
+     * round trip to the server-side, e.g. from prefetched suggestions or the
+     * dictionary. Misses have been sent to the server-side.
+     *
+     * @param provider The {@link AutocompleteSuggestionProvider} of the
+     * extension.
+     * @param hits The number of client-side cache hits.
+     * @param misses The number of client-side cache misses.
+     */
+    public void recordClientCache(AutocompleteSuggestionProvider provider,
+            int hits, int misses);
+
+}
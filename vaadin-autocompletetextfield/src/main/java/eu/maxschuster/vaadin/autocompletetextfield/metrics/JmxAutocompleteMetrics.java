@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.metrics;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link AutocompleteMetrics} that publish one {@link ProviderMetrics} MBean
+ * per {@link AutocompleteSuggestionProvider} on the platform
+ * {@link MBeanServer}.
+ * <p>
+ * Only providers registered with
+ * {@link #register(AutocompleteSuggestionProvider, String)} are measured,
+ * measurements of all other providers are ignored. The MBeans are registered
+ * as
+ * {@code eu.maxschuster.vaadin.autocompletetextfield:type=ProviderMetrics,name=<name>}.
+ * Registered providers are referenced until they are unregistered, so
+ * providers that are created per session should be unregistered when they
+ * aren't used anymore.
+ * </p>
+ * <p>
+ * Registrations are not serialized. A deserialized session references
+ * copies of its providers, which are not registered and therefore not
+ * measured until they are registered again. The first deserialization in a
+ * JVM logs a warning.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ * <pre>
+ * JmxAutocompleteMetrics metrics = JmxAutocompleteMetrics.getInstance();
+ * metrics.register(languageProvider, "languages");
+ * field.setMetrics(metrics);
+ * </pre>
+ *
+ * @author Max Schuster
+ * @see AutocompleteMetrics
+ * @see ProviderMetricsMBean
+ */
+public class JmxAutocompleteMetrics implements AutocompleteMetrics {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The JMX domain of the MBeans
+     */
+    public static final String DOMAIN = "eu.maxschuster.vaadin.autocompletetextfield";
+
+    private static final JmxAutocompleteMetrics INSTANCE = new JmxAutocompleteMetrics();
+
+    /**
+     * Set once the deserialization warning has been logged
+     */
+    private static final AtomicBoolean DESERIALIZATION_WARNED = new AtomicBoolean();
+
+    /**
+     * The metrics of each registered provider, read without locking
+     */
+    private final transient Map<ProviderKey, ProviderMetrics> metrics
+            = new ConcurrentHashMap<ProviderKey, ProviderMetrics>();
+
+    /**
+     * The names of the registered MBeans, guarded by {@code this}
+     */
+    private final transient Map<ProviderKey, ObjectName> names
+            = new HashMap<ProviderKey, ObjectName>();
+
+    private JmxAutocompleteMetrics() {
+    }
+
+    /**
+     * Gets the {@link JmxAutocompleteMetrics} of this JVM.
+     *
+     * @return The {@link JmxAutocompleteMetrics}.
+     */
+    public static JmxAutocompleteMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the MBean of the given provider with the given name. Existing
+     * measurements are kept.
+     *
+     * @param provider The {@link AutocompleteSuggestionProvider}.
+     * @param name The value of the MBean's {@code name} key.
+     * @return The {@link ProviderMetrics} of the provider.
+     */
+    public synchronized ProviderMetrics register(
+            AutocompleteSuggestionProvider provider, String name) {
+        if (provider == null) {
+            throw new NullPointerException("provider is null!");
+        }
+        ProviderKey key = new ProviderKey(provider);
+        ProviderMetrics providerMetrics = metrics.get(key);
+        if (providerMetrics == null) {
+            providerMetrics = new ProviderMetrics();
+            metrics.put(key, providerMetrics);
+        }
+        unregisterMBean(names.remove(key));
+        registerMBean(key, providerMetrics, name);
+        return providerMetrics;
+    }
+
+    /**
+     * Removes the measurements and the MBean of the given provider.
+     *
+     * @param provider The {@link AutocompleteSuggestionProvider}.
+     */
+    public synchronized void unregister(AutocompleteSuggestionProvider provider) {
+        if (provider == null) {
+            return;
+        }
+        ProviderKey key = new ProviderKey(provider);
+        metrics.remove(key);
+        unregisterMBean(names.remove(key));
+    }
+
+    /**
+     * Gets the {@link ProviderMetrics} of the given provider.
+     *
+     * @param provider The {@link AutocompleteSuggestionProvider}.
+     * @return The {@link ProviderMetrics} or {@code null} if the provider
+     * isn't registered.
+     */
+    public ProviderMetrics getProviderMetrics(
+            AutocompleteSuggestionProvider provider) {
+        return provider != null ? metrics.get(new ProviderKey(provider)) : null;
+    }
+
+    @Override
+    public void recordQuery(AutocompleteSuggestionProvider provider,
+            AutocompleteQuery query, long providerNanos, long trimNanos) {
+        ProviderMetrics providerMetrics = getProviderMetrics(provider);
+        if (providerMetrics != null) {
+            providerMetrics.recordQuery(providerNanos, trimNanos);
+        }
+    }
+
+    @Override
+    public void recordResponse(AutocompleteSuggestionProvider provider,
+            int suggestionCount, long encodeNanos) {
+        ProviderMetrics providerMetrics = getProviderMetrics(provider);
+        if (providerMetrics != null) {
+            providerMetrics.recordResponse(suggestionCount, encodeNanos);
+        }
+    }
+
+    @Override
+    public void recordClientCache(AutocompleteSuggestionProvider provider,
+            int hits, int misses) {
+        ProviderMetrics providerMetrics = getProviderMetrics(provider);
+        if (providerMetrics != null) {
+            providerMetrics.recordClientCache(hits, misses);
+        }
+    }
+
+    private void registerMBean(ProviderKey key,
+            ProviderMetrics providerMetrics, String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN
+                    + ":type=ProviderMetrics,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(providerMetrics, objectName);
+            names.put(key, objectName);
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING,
+                    "Unable to register the metrics of " + name, e);
+        }
+    }
+
+    private void unregisterMBean(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING,
+                    "Unable to unregister " + objectName, e);
+        }
+    }
+
+    /**
+     * Keeps the JVM wide instance unique after deserialization of a session.
+     * Warns once that the deserialized providers of the session aren't
+     * registered.
+     *
+     * @return The JVM wide instance.
+     */
+    private Object readResolve() {
+        if (DESERIALIZATION_WARNED.compareAndSet(false, true)) {
+            getLogger().log(Level.WARNING, "A session using {0} has been "
+                    + "deserialized. Its suggestion providers are copies "
+                    + "that are not measured until they are registered again.",
+                    JmxAutocompleteMetrics.class.getSimpleName());
+        }
+        return INSTANCE;
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(JmxAutocompleteMetrics.class.getName());
+    }
+
+    /**
+     * Compares providers by identity, because providers like the
+     * {@link eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider}
+     * implement {@link Object#equals(java.lang.Object)} by their values.
+     */
+    private static final class ProviderKey {
+
+        private final AutocompleteSuggestionProvider provider;
+
+        ProviderKey(AutocompleteSuggestionProvider provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(provider);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ProviderKey
+                    && ((ProviderKey) obj).provider == provider;
+        }
+
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.metrics;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The measurements of a single {@link AutocompleteSuggestionProvider}.
+ *
+ * @author Max Schuster
+ * @see JmxAutocompleteMetrics
+ */
+public class ProviderMetrics implements ProviderMetricsMBean, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Histogram providerTime = new Histogram();
+
+    private final Histogram trimTime = new Histogram();
+
+    private final Histogram encodeTime = new Histogram();
+
+    private final Histogram resultCount = new Histogram();
+
+    private final AtomicLong emptyResults = new AtomicLong();
+
+    private final AtomicLong clientCacheHits = new AtomicLong();
+
+    private final AtomicLong clientCacheMisses = new AtomicLong();
+
+    /**
+     * Records the execution of a query.
+     *
+     * @param providerNanos Time spent in the provider in nanoseconds.
+     * @param trimNanos Time spent to trim the result in nanoseconds.
+     */
+    public void recordQuery(long providerNanos, long trimNanos) {
+        providerTime.record(providerNanos);
+        trimTime.record(trimNanos);
+    }
+
+    /**
+     * Records a response sent to the client-side.
+     *
+     * @param suggestionCount The number of sent suggestions.
+     * @param encodeNanos Time spent to convert the suggestions to JSON in
+     * nanoseconds.
+     */
+    public void recordResponse(int suggestionCount, long encodeNanos) {
+        resultCount.record(suggestionCount);
+        encodeTime.record(encodeNanos);
+        if (suggestionCount == 0) {
+            emptyResults.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records searches of the client-side.
+     *
+     * @param hits The number of client-side cache hits.
+     * @param misses The number of client-side cache misses.
+     */
+    public void recordClientCache(int hits, int misses) {
+        clientCacheHits.addAndGet(hits);
+        clientCacheMisses.addAndGet(misses);
+    }
+
+    /**
+     * Gets the {@link Histogram} of the time spent in the provider in
+     * nanoseconds.
+     *
+     * @return The {@link Histogram}.
+     */
+    public Histogram getProviderTime() {
+        return providerTime;
+    }
+
+    /**
+     * Gets the {@link Histogram} of the time spent to trim the results in
+     * nanoseconds.
+     *
+     * @return The {@link Histogram}.
+     */
+    public Histogram getTrimTime() {
+        return trimTime;
+    }
+
+    /**
+     * Gets the {@link Histogram} of the time spent to convert the results to
+     * JSON in nanoseconds.
+     *
+     * @return The {@link Histogram}.
+     */
+    public Histogram getEncodeTime() {
+        return encodeTime;
+    }
+
+    /**
+     * Gets the {@link Histogram} of the number of sent suggestions.
+     *
+     * @return The {@link Histogram}.
+     */
+    public Histogram getResultCount() {
+        return resultCount;
+    }
+
+    @Override
+    public long getQueryCount() {
+        return providerTime.getCount();
+    }
+
+    @Override
+    public long getResponseCount() {
+        return resultCount.getCount();
+    }
+
+    @Override
+    public double getEmptyResultRate() {
+        long responses = resultCount.getCount();
+        return responses > 0 ? (double) emptyResults.get() / responses : 0;
+    }
+
+    @Override
+    public double getMeanResultCount() {
+        return resultCount.getMean();
+    }
+
+    @Override
+    public long getResultCountP99() {
+        return resultCount.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getProviderTimeP50() {
+        return micros(providerTime.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getProviderTimeP99() {
+        return micros(providerTime.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getProviderTimeP999() {
+        return micros(providerTime.getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getProviderTimeMax() {
+        return micros(providerTime.getMax());
+    }
+
+    @Override
+    public long getTrimTimeP50() {
+        return micros(trimTime.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getTrimTimeP99() {
+        return micros(trimTime.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getEncodeTimeP50() {
+        return micros(encodeTime.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getEncodeTimeP99() {
+        return micros(encodeTime.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getEncodeTimeP999() {
+        return micros(encodeTime.getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getClientCacheHits() {
+        return clientCacheHits.get();
+    }
+
+    @Override
+    public long getClientCacheMisses() {
+        return clientCacheMisses.get();
+    }
+
+    @Override
+    public double getClientCacheHitRatio() {
+        long hits = clientCacheHits.get();
+        long total = hits + clientCacheMisses.get();
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    @Override
+    public void reset() {
+        providerTime.reset();
+        trimTime.reset();
+        encodeTime.reset();
+        resultCount.reset();
+        emptyResults.set(0);
+        clientCacheHits.set(0);
+        clientCacheMisses.set(0);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.metrics;
+
+/**
+ * JMX management interface of {@link ProviderMetrics}.
+ * <p>
+ * Times are reported in microseconds.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see ProviderMetrics
+ */
+public interface ProviderMetricsMBean {
+
+    public long getQueryCount();
+
+    public long getResponseCount();
+
+    public double getEmptyResultRate();
+
+    public double getMeanResultCount();
+
+    public long getResultCountP99();
+
+    public long getProviderTimeP50();
+
+    public long getProviderTimeP99();
+
+    public long getProviderTimeP999();
+
+    public long getProviderTimeMax();
+
+    public long getTrimTimeP50();
+
+    public long getTrimTimeP99();
+
+    public long getEncodeTimeP50();
+
+    public long getEncodeTimeP99();
+
+    public long getEncodeTimeP999();
+
+    public long getClientCacheHits();
+
+    public long getClientCacheMisses();
+
+    public double getClientCacheHitRatio();
+
+    public void reset();
+
+}
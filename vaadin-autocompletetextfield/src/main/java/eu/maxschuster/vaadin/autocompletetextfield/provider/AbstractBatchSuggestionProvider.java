@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.provider;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteBatchSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Base class for {@link AutocompleteBatchSuggestionProvider}s.
+ * <p>
+ * Implements {@link #querySuggestions(AutocompleteQuery)} as a batch of one
+ * query, so subclasses only have to implement
+ * {@link #querySuggestions(java.util.List)}.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteBatchSuggestionProvider
+ */
+public abstract class AbstractBatchSuggestionProvider implements AutocompleteBatchSuggestionProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query) {
+        Map<AutocompleteQuery, Collection<AutocompleteSuggestion>> results
+                = querySuggestions(Collections.singletonList(query));
+        return results != null ? results.get(query) : null;
+    }
+
+}
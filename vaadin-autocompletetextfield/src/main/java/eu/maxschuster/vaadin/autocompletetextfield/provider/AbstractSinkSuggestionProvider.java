@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.provider;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionCollector;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionSinkProvider;
+import java.util.Collection;
+
+/**
+ * Base class for {@link AutocompleteSuggestionSinkProvider}s.
+ * <p>
+ * Implements {@link #querySuggestions(AutocompleteQuery)} by collecting the
+ * suggestions written into the sink, so subclasses only have to implement
+ * {@link #querySuggestions(AutocompleteQuery, eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionSink)}.
+ * The {@link eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension}
+ * always queries the sink based method, so subclasses must not override
+ * {@link #querySuggestions(AutocompleteQuery)} to change their results.
+ * </p>
+ *
+ * @author Max Schuster
+ * @see AutocompleteSuggestionSinkProvider
+ */
+public abstract class AbstractSinkSuggestionProvider implements AutocompleteSuggestionSinkProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query) {
+        AutocompleteSuggestionCollector collector
+                = new AutocompleteSuggestionCollector(query.getLimit());
+        querySuggestions(query, collector);
+        return collector.getSuggestions();
+    }
+
+}
@@ -21,6 +21,7 @@ import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvide
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -62,6 +63,11 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
      */
     private Locale locale;
 
+    /**
+     * Incremented whenever the matching behavior changes
+     */
+    private int version = 0;
+
     @SuppressWarnings("unchecked")
     public CollectionSuggestionProvider() {
         this(Collections.EMPTY_LIST);
@@ -151,6 +157,7 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
 
         boolean hasLimit = query.hasLimit();
         int limit = query.getLimit();
+        int skip = query.getOffset();
         int length = search.size();
 
         Set<AutocompleteSuggestion> suggestions;
@@ -160,6 +167,10 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
             suggestions = new LinkedHashSet<AutocompleteSuggestion>();
         }
 
+        // the distinct suggestions of the previous pages
+        Set<AutocompleteSuggestion> skipped = skip > 0
+                ? new HashSet<AutocompleteSuggestion>(skip) : null;
+
         int added = 0;
         for (int i = 0; i < length; ++i) {
             if (hasLimit && added >= limit) {
@@ -168,7 +179,17 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
             String searchValue = search.get(i);
             if (MatchMode.BEGINS == matchMode && searchValue.startsWith(term)
                     || MatchMode.CONTAINS == matchMode && searchValue.contains(term)) {
-                if (suggestions.add(new AutocompleteSuggestion(values.get(i)))) {
+                AutocompleteSuggestion suggestion
+                        = new AutocompleteSuggestion(values.get(i));
+                if (skipped != null) {
+                    if (skipped.size() < skip) {
+                        skipped.add(suggestion);
+                        continue; // skip the matches of the previous pages
+                    } else if (skipped.contains(suggestion)) {
+                        continue; // already on a previous page
+                    }
+                }
+                if (suggestions.add(suggestion)) {
                     ++added;
                 }
             }
@@ -212,6 +233,7 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
         validateValues(values);
         this.values = copyToList(values);
         refreshSearchList();
+        ++version;
     }
 
     /**
@@ -242,6 +264,9 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
      */
     public void setMatchMode(MatchMode matchMode) {
         validateMatchMode(matchMode);
+        if (this.matchMode != matchMode) {
+            ++version;
+        }
         this.matchMode = matchMode;
     }
 
@@ -277,6 +302,7 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
         this.ignoreCase = ignoreCase;
         if (changed) {
             refreshSearchList();
+            ++version;
         }
     }
 
@@ -312,6 +338,7 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
         this.locale = locale;
         if (changed) {
             refreshSearchList();
+            ++version;
         }
     }
 
@@ -327,6 +354,17 @@ public class CollectionSuggestionProvider implements AutocompleteSuggestionProvi
         return this;
     }
 
+    /**
+     * Gets the version of this provider. It is incremented whenever the
+     * values, the {@link MatchMode}, the case sensitivity or the
+     * {@link Locale} change.
+     *
+     * @return The version of this provider.
+     */
+    public int getVersion() {
+        return version;
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletetextfield.provider;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteStagedSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionSink;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionSinkProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link AutocompleteStagedSuggestionProvider} that queries one delegate
+ * {@link AutocompleteSuggestionProvider} per stage.
+ * <p>
+ * Example: Prefix matches first, substring matches later.
+ * </p>
+ * <pre>
+ * new StagedSuggestionProvider(
+ *         new CollectionSuggestionProvider(values, MatchMode.BEGINS, true),
+ *         new CollectionSuggestionProvider(values, MatchMode.CONTAINS, true));
+ * </pre>
+ *
+ * @author Max Schuster
+ * @see AutocompleteStagedSuggestionProvider
+ */
+public class StagedSuggestionProvider extends AbstractSinkSuggestionProvider
+        implements AutocompleteStagedSuggestionProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The delegate providers, one per stage
+     */
+    private final List<AutocompleteSuggestionProvider> stages;
+
+    public StagedSuggestionProvider(AutocompleteSuggestionProvider... stages) {
+        this(Arrays.asList(stages));
+    }
+
+    public StagedSuggestionProvider(List<AutocompleteSuggestionProvider> stages) {
+        validateStages(stages);
+        this.stages = new ArrayList<AutocompleteSuggestionProvider>(stages);
+    }
+
+    private void validateStages(List<AutocompleteSuggestionProvider> stages) {
+        if (stages == null) {
+            throw new NullPointerException("stages is null!");
+        } else if (stages.isEmpty()) {
+            throw new IllegalArgumentException("stages is empty!");
+        } else if (stages.contains(null)) {
+            throw new NullPointerException("stages contains null!");
+        }
+    }
+
+    @Override
+    public int getStageCount() {
+        return stages.size();
+    }
+
+    @Override
+    public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query, int stage) {
+        return stages.get(stage).querySuggestions(query);
+    }
+
+    /**
+     * Queries all stages at once and merges their results.
+     *
+     * @param query The {@link AutocompleteQuery}.
+     * @param sink The {@link AutocompleteSuggestionSink} receiving the merged
+     * results of all stages.
+     */
+    @Override
+    public void querySuggestions(AutocompleteQuery query, final AutocompleteSuggestionSink sink) {
+        final boolean[] full = {false};
+        AutocompleteSuggestionSink stageSink = new AutocompleteSuggestionSink() {
+            @Override
+            public boolean add(AutocompleteSuggestion suggestion) {
+                full[0] = !sink.add(suggestion);
+                return !full[0];
+            }
+        };
+        for (AutocompleteSuggestionProvider stage : stages) {
+            if (stage instanceof AutocompleteSuggestionSinkProvider) {
+                ((AutocompleteSuggestionSinkProvider) stage)
+                        .querySuggestions(query, stageSink);
+            } else {
+                Collection<AutocompleteSuggestion> stageSuggestions
+                        = stage.querySuggestions(query);
+                if (stageSuggestions != null) {
+                    for (AutocompleteSuggestion suggestion : stageSuggestions) {
+                        if (!stageSink.add(suggestion)) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (full[0]) {
+                return; // limit reached
+            }
+        }
+    }
+
+    /**
+     * Gets an unmodifiable {@link List} of the delegate providers.
+     *
+     * @return An unmodifiable {@link List} of the delegate providers.
+     */
+    public List<AutocompleteSuggestionProvider> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+}
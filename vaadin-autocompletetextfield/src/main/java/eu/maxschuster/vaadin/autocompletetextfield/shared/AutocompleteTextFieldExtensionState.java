@@ -51,6 +51,30 @@ public class AutocompleteTextFieldExtensionState extends JavaScriptExtensionStat
      */
     public boolean cache = true;
 
+    /**
+     * Max number of searched terms whose suggestions are cached.
+     */
+    public int cacheSize = 100;
+
+    /**
+     * Time in milliseconds after which cached suggestions expire, 0 if they
+     * never expire.
+     */
+    public int cacheTtl = 300000;
+
+    /**
+     * Connectors with the same cache id share their cached suggestions and
+     * outstanding queries, {@code null} for a cache of their own.
+     */
+    public String cacheId;
+
+    /**
+     * Version of the suggestions, the shared cache is stored in the browser
+     * across page reloads as long as it doesn't change. {@code null}
+     * disables the persistent cache.
+     */
+    public String cacheVersion;
+
     /**
      * Custom class/es that get/s added to the dropdown menu container.
      */
@@ -61,4 +85,21 @@ public class AutocompleteTextFieldExtensionState extends JavaScriptExtensionStat
      */
     public ScrollBehavior scrollBehavior = ScrollBehavior.NONE;
 
+    /**
+     * Request suggestions in advance when the textfield gets focused.
+     */
+    public boolean prefetchEnabled = false;
+
+    /**
+     * Results with more suggestions are rendered virtually, 0 disables the
+     * virtual rendering.
+     */
+    public int virtualRenderingThreshold = 0;
+
+    /**
+     * Render suggestions by cloning a template and reuse the rows of
+     * unchanged suggestions.
+     */
+    public boolean templateRenderingEnabled = false;
+
 }
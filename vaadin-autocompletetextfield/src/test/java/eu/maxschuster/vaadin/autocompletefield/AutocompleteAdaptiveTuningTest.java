@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteAdaptiveTuning;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AutocompleteAdaptiveTuningTest {
+
+    private final AutocompleteAdaptiveTuning tuning
+            = new AutocompleteAdaptiveTuning(100, 500, 1, 3, 0.5, 2);
+
+    @Test
+    public void smoothsMeasurements() {
+        Assert.assertEquals(10, tuning.smooth(-1, 10), 0);
+        Assert.assertEquals(15, tuning.smooth(10, 20), 0);
+    }
+
+    @Test
+    public void keepsDelayWithinBounds() {
+        Assert.assertEquals(100, tuning.getDelay(1));
+        Assert.assertEquals(300, tuning.getDelay(150));
+        Assert.assertEquals(500, tuning.getDelay(10000));
+    }
+
+    @Test
+    public void raisesMinCharsForSlowAndFullResults() {
+        Assert.assertEquals(1, tuning.getMinChars(1, 10, 10));
+        Assert.assertEquals(1, tuning.getMinChars(10000, 0, 10));
+        Assert.assertEquals(2, tuning.getMinChars(150, 10, 10));
+        Assert.assertEquals(3, tuning.getMinChars(10000, 10, 10));
+        Assert.assertEquals(3, tuning.getMinChars(10000, 5, 0));
+    }
+
+}
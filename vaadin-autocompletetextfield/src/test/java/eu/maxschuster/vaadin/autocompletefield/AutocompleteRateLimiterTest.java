@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.maxschuster.vaadin.autocompletefield;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AutocompleteRateLimiterTest {
+
+    private static final long MILLIS = 1000000L;
+
+    /**
+     * Current time of the fake clock in nanoseconds
+     */
+    private final long[] now = {0};
+
+    private AutocompleteRateLimiter createLimiter(int capacity, double tokensPerSecond) {
+        return new AutocompleteRateLimiter(capacity, tokensPerSecond) {
+            @Override
+            protected long currentTimeNanos() {
+                return now[0];
+            }
+        };
+    }
+
+    @Test
+    public void rejectsQueriesBeyondTheBurst() {
+        AutocompleteRateLimiter limiter = createLimiter(2, 10);
+        Assert.assertEquals(0, limiter.tryAcquire());
+        Assert.assertEquals(0, limiter.tryAcquire());
+        Assert.assertEquals(100, limiter.tryAcquire());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    public void refillsOverTime() {
+        AutocompleteRateLimiter limiter = createLimiter(1, 10);
+        Assert.assertEquals(0, limiter.tryAcquire());
+        now[0] += 50 * MILLIS;
+        Assert.assertEquals(50, limiter.tryAcquire());
+        now[0] += 50 * MILLIS;
+        Assert.assertEquals(0, limiter.tryAcquire());
+        now[0] += 10000 * MILLIS;
+        Assert.assertEquals(0, limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire() > 0);
+    }
+
+    @Test
+    public void countsRejectionsSinceTheLastSample() {
+        AutocompleteRateLimiter sampler = createLimiter(1, 10);
+        Assert.assertEquals(0, sampler.tryAcquireSample());
+        Assert.assertEquals(-1, sampler.tryAcquireSample());
+        Assert.assertEquals(-1, sampler.tryAcquireSample());
+        now[0] += 100 * MILLIS;
+        Assert.assertEquals(2, sampler.tryAcquireSample());
+        now[0] += 100 * MILLIS;
+        Assert.assertEquals(0, sampler.tryAcquireSample());
+        Assert.assertEquals(2, sampler.getRejectedCount());
+    }
+
+}
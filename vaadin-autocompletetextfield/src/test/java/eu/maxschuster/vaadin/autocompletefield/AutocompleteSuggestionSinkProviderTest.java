@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionSink;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.AbstractSinkSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AutocompleteSuggestionSinkProviderTest {
+
+    private final List<String> values = Arrays.asList(
+            "Java", "JavaScript", "Join Java", "JavaFX Script", "Scala");
+
+    private final QueryExtension extension = new QueryExtension();
+
+    @Test
+    public void stopsMatchingWhenTheSinkIsFull() {
+        CountingProvider provider = new CountingProvider();
+        extension.setSuggestionProvider(provider);
+        extension.setSuggestionLimit(2);
+        Assert.assertEquals(2, extension.querySuggestions("java").size());
+        Assert.assertEquals(2, provider.offered);
+    }
+
+    @Test
+    public void collectsTheSinkForTheCollectionMethod() {
+        CountingProvider provider = new CountingProvider();
+        Collection<AutocompleteSuggestion> suggestions = provider.querySuggestions(
+                new AutocompleteQuery(extension, "java", 3));
+        Assert.assertEquals(3, suggestions.size());
+        Assert.assertEquals(3, provider.offered);
+    }
+
+    @Test
+    public void queriesTheOverriddenCollectionMethodOfOtherProviders() {
+        extension.setSuggestionProvider(new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS, true, Locale.US) {
+            @Override
+            public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query) {
+                Collection<AutocompleteSuggestion> suggestions
+                        = super.querySuggestions(query);
+                for (AutocompleteSuggestion suggestion : suggestions) {
+                    suggestion.setDescription("Language");
+                }
+                return suggestions;
+            }
+        });
+        Set<AutocompleteSuggestion> suggestions = extension.querySuggestions("java");
+        Assert.assertEquals(3, suggestions.size());
+        for (AutocompleteSuggestion suggestion : suggestions) {
+            Assert.assertEquals("Language", suggestion.getDescription());
+        }
+    }
+
+    /**
+     * Matches every value containing the term and counts the suggestions
+     * offered to the sink.
+     */
+    private class CountingProvider extends AbstractSinkSuggestionProvider {
+
+        private static final long serialVersionUID = 1L;
+
+        private int offered = 0;
+
+        @Override
+        public void querySuggestions(AutocompleteQuery query, AutocompleteSuggestionSink sink) {
+            String term = query.getTerm().toLowerCase(Locale.US);
+            for (String value : values) {
+                if (value.toLowerCase(Locale.US).contains(term)) {
+                    ++offered;
+                    if (!sink.add(new AutocompleteSuggestion(value))) {
+                        return;
+                    }
+                }
+            }
+        }
+
+    }
+
+    private static class QueryExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Set<AutocompleteSuggestion> querySuggestions(String term) {
+            // visible to the test
+            return super.querySuggestions(term);
+        }
+
+    }
+
+}
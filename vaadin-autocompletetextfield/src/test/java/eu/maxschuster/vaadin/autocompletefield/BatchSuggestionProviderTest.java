@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.VaadinSession;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.AbstractBatchSuggestionProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchSuggestionProviderTest {
+
+    /**
+     * A session that can be used without a service
+     */
+    private final VaadinSession session = new VaadinSession(null) {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Lock lock = new ReentrantLock();
+
+        @Override
+        public boolean hasLock() {
+            return true;
+        }
+
+        @Override
+        public Lock getLockInstance() {
+            return lock;
+        }
+
+    };
+
+    @Test
+    public void executesTheQueriesOfOneRequestTogether() {
+        UpperCaseProvider provider = new UpperCaseProvider();
+        BatchExtension first = new BatchExtension(session, provider);
+        BatchExtension second = new BatchExtension(session, provider);
+
+        first.queryPage(Json.create(1), "a", 0);
+        second.queryPage(Json.create(1), "b", 0);
+        Assert.assertTrue(provider.batches.isEmpty());
+        Assert.assertTrue(first.retrievePendingRpcCalls().isEmpty());
+
+        // the first extension written to the response executes the batch
+        first.beforeClientResponse(false);
+        second.beforeClientResponse(false);
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a", "b")),
+                provider.batches);
+        assertResponse(first, "A");
+        assertResponse(second, "B");
+    }
+
+    @Test
+    public void groupsTheQueriesByProvider() {
+        UpperCaseProvider provider = new UpperCaseProvider();
+        UpperCaseProvider other = new UpperCaseProvider();
+        BatchExtension first = new BatchExtension(session, provider);
+        BatchExtension second = new BatchExtension(session, other);
+        BatchExtension third = new BatchExtension(session, provider);
+
+        first.queryPage(Json.create(1), "a", 0);
+        second.queryPage(Json.create(1), "b", 0);
+        third.queryPage(Json.create(1), "c", 0);
+        second.beforeClientResponse(false);
+
+        Assert.assertEquals(Arrays.asList(Arrays.asList("a", "c")),
+                provider.batches);
+        Assert.assertEquals(Arrays.asList(Arrays.asList("b")), other.batches);
+        assertResponse(first, "A");
+        assertResponse(second, "B");
+        assertResponse(third, "C");
+
+        // the batch has been executed and is not executed again
+        first.beforeClientResponse(false);
+        Assert.assertEquals(1, provider.batches.size());
+        Assert.assertTrue(first.retrievePendingRpcCalls().isEmpty());
+    }
+
+    @Test
+    public void queriesRightAwayWithoutSession() {
+        UpperCaseProvider provider = new UpperCaseProvider();
+        BatchExtension extension = new BatchExtension(null, provider);
+
+        extension.queryPage(Json.create(1), "a", 0);
+        Assert.assertEquals(1, provider.batches.size());
+        assertResponse(extension, "A");
+    }
+
+    private static void assertResponse(BatchExtension extension, String expected) {
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        JsonArray response = (JsonArray) calls.get(0).getParameters()[1];
+        JsonArray suggestions = response.getObject(1).getArray("value");
+        Assert.assertEquals(1, suggestions.length());
+        Assert.assertEquals(expected, suggestions.getString(0));
+    }
+
+    /**
+     * Answers every query with its term in upper case and records the
+     * batches.
+     */
+    private static class UpperCaseProvider extends AbstractBatchSuggestionProvider {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<String>> batches = new ArrayList<List<String>>();
+
+        @Override
+        public Map<AutocompleteQuery, Collection<AutocompleteSuggestion>> querySuggestions(
+                List<AutocompleteQuery> queries) {
+            Map<AutocompleteQuery, Collection<AutocompleteSuggestion>> results
+                    = new HashMap<AutocompleteQuery, Collection<AutocompleteSuggestion>>();
+            List<String> terms = new ArrayList<String>();
+            for (AutocompleteQuery query : queries) {
+                terms.add(query.getTerm());
+                results.put(query, Collections.singletonList(
+                        new AutocompleteSuggestion(query.getTerm().toUpperCase())));
+            }
+            batches.add(terms);
+            return results;
+        }
+
+    }
+
+    /**
+     * An extension attached to the given session.
+     */
+    private static class BatchExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        private final VaadinSession session;
+
+        public BatchExtension(VaadinSession session, UpperCaseProvider provider) {
+            this.session = session;
+            setSuggestionProvider(provider);
+        }
+
+        @Override
+        public VaadinSession getSession() {
+            return session;
+        }
+
+        @Override
+        protected void queryPage(JsonValue requestId, String term, int offset) {
+            // visible to the test
+            super.queryPage(requestId, term, offset);
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CollectionSuggestionProviderTest {
+
+    private final List<String> values = Arrays.asList(
+            "Java", "JavaScript", "Join Java", "JavaFX Script", "Scala");
+
+    @Test
+    public void incrementsVersionOnChange() {
+        CollectionSuggestionProvider provider = new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS, false, Locale.US);
+        int version = provider.getVersion();
+        provider.setIgnoreCase(false);
+        provider.setMatchMode(MatchMode.BEGINS);
+        Assert.assertEquals(version, provider.getVersion());
+        provider.setMatchMode(MatchMode.CONTAINS);
+        Assert.assertTrue(provider.getVersion() > version);
+        version = provider.getVersion();
+        provider.setValues(values);
+        Assert.assertTrue(provider.getVersion() > version);
+    }
+
+}
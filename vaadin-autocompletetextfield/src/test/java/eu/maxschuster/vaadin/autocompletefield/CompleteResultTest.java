@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ClientMethodInvocation;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompleteResultTest {
+
+    private final List<String> values = Arrays.asList(
+            "Java", "JavaScript", "JavaFX Script", "Join Java", "Scala", "Scheme");
+
+    private final PageExtension extension = new PageExtension();
+
+    @Test
+    public void marksResultsBelowTheLimitComplete() {
+        extension.withSuggestionProvider(new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS, true, Locale.US))
+                .withSuggestionLimit(3);
+
+        JsonObject options = query("sc");
+        Assert.assertTrue(options.hasKey("complete"));
+        JsonObject complete = options.getObject("complete");
+        Assert.assertEquals("BEGINS", complete.getString("matchMode"));
+        Assert.assertTrue(complete.getBoolean("ignoreCase"));
+        Assert.assertEquals("en-US", complete.getString("locale"));
+    }
+
+    @Test
+    public void doesNotMarkAFullResultComplete() {
+        extension.withSuggestionProvider(new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS, true, Locale.US))
+                .withSuggestionLimit(3);
+
+        // exactly as many matches as the limit
+        Assert.assertFalse(query("jav").hasKey("complete"));
+        // more matches than the limit
+        Assert.assertFalse(query("j").hasKey("complete"));
+    }
+
+    @Test
+    public void doesNotMarkResultsOfSubclassesComplete() {
+        extension.withSuggestionProvider(new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS, true, Locale.US) {
+
+            private static final long serialVersionUID = 1L;
+
+        }).withSuggestionLimit(3);
+
+        Assert.assertFalse(query("sc").hasKey("complete"));
+    }
+
+    /**
+     * Queries the first page and returns the options of the response.
+     */
+    private JsonObject query(String term) {
+        extension.queryPage(Json.create(1), term, 0);
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        Object[] parameters = calls.get(0).getParameters();
+        Assert.assertEquals("setSuggestions", parameters[0]);
+        return ((JsonArray) parameters[1]).getObject(2);
+    }
+
+    private static class PageExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void queryPage(JsonValue requestId, String term, int offset) {
+            // visible to the test
+            super.queryPage(requestId, term, offset);
+        }
+
+    }
+
+}
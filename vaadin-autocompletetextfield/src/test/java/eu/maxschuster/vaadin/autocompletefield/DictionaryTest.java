@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ClientMethodInvocation;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DictionaryTest {
+
+    private final List<String> values = Arrays.asList(
+            "Java", "JavaScript", "Scala");
+
+    private final AutocompleteTextFieldExtension extension
+            = new AutocompleteTextFieldExtension();
+
+    @Test
+    public void sendsTheValuesOfSmallCollections() {
+        CollectionSuggestionProvider provider = new CollectionSuggestionProvider(
+                values, MatchMode.CONTAINS, true, Locale.US);
+        extension.withSuggestionProvider(provider).withDictionaryThreshold(3);
+
+        extension.beforeClientResponse(true);
+        JsonArray arguments = retrieveDictionary();
+        Assert.assertEquals(values, getValues(arguments.getArray(0)));
+        JsonObject options = arguments.getObject(1);
+        Assert.assertEquals(provider.getVersion(), (int) options.getNumber("version"));
+        Assert.assertEquals("CONTAINS", options.getString("matchMode"));
+        Assert.assertTrue(options.getBoolean("ignoreCase"));
+        Assert.assertEquals("en-US", options.getString("locale"));
+    }
+
+    @Test
+    public void sendsTheValuesOnlyWhenTheVersionChanged() {
+        CollectionSuggestionProvider provider = new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS);
+        extension.withSuggestionProvider(provider).withDictionaryThreshold(3);
+        extension.beforeClientResponse(true);
+        retrieveDictionary();
+
+        extension.beforeClientResponse(false);
+        Assert.assertTrue(extension.retrievePendingRpcCalls().isEmpty());
+
+        provider.setValues(Arrays.asList("Java"));
+        extension.beforeClientResponse(false);
+        Assert.assertEquals(Arrays.asList("Java"),
+                getValues(retrieveDictionary().getArray(0)));
+    }
+
+    @Test
+    public void ignoresCollectionsBeyondTheThreshold() {
+        CollectionSuggestionProvider provider = new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS);
+        extension.withSuggestionProvider(provider).withDictionaryThreshold(2);
+
+        extension.beforeClientResponse(true);
+        Assert.assertTrue(extension.retrievePendingRpcCalls().isEmpty());
+    }
+
+    @Test
+    public void ignoresSubclassesOfCollectionSuggestionProvider() {
+        CollectionSuggestionProvider provider = new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS) {
+
+            private static final long serialVersionUID = 1L;
+
+        };
+        extension.withSuggestionProvider(provider).withDictionaryThreshold(3);
+
+        extension.beforeClientResponse(true);
+        Assert.assertTrue(extension.retrievePendingRpcCalls().isEmpty());
+    }
+
+    @Test
+    public void clearsTheDictionaryWhenDisabled() {
+        extension.withSuggestionProvider(new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS)).withDictionaryThreshold(3);
+        extension.beforeClientResponse(true);
+        retrieveDictionary();
+
+        extension.setDictionaryThreshold(0);
+        extension.beforeClientResponse(false);
+        Assert.assertEquals(JsonType.NULL,
+                retrieveDictionary().get(0).getType());
+    }
+
+    private JsonArray retrieveDictionary() {
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        Assert.assertEquals("setDictionary", calls.get(0).getParameters()[0]);
+        return (JsonArray) calls.get(0).getParameters()[1];
+    }
+
+    private static List<String> getValues(JsonArray array) {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < array.length(); i++) {
+            values.add(array.getString(i));
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import eu.maxschuster.vaadin.autocompletetextfield.metrics.Histogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void reportsPercentilesWithinBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 10000; ++i) {
+            histogram.record(i * 1000);
+        }
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(10000000, histogram.getMax());
+        assertWithin(5000000, histogram.getValueAtPercentile(50));
+        assertWithin(9900000, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(10000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void recordsSmallValuesExactly() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(-5);
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(3, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 16);
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ExternalResource;
+import com.vaadin.server.Resource;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IconRegistryTest {
+
+    private final IconExtension extension = new IconExtension();
+
+    private int response = 0;
+
+    @Test
+    public void registersEqualIconsOnlyOnce() {
+        String key = send(0, 1).get(0);
+        Assert.assertEquals(key, send(0, 1).get(0));
+        Assert.assertEquals("http://example.com/0.png",
+                ((ExternalResource) extension.getResource(key)).getURL());
+        Assert.assertNull(extension.getResource("icon-1"));
+    }
+
+    @Test
+    public void releasesTheLeastRecentlyUsedIconsBeyondTheRegistrySize() {
+        extension.setIconRegistrySize(2);
+        List<String> first = send(0, 2);
+        send(1, 1);
+        List<String> third = send(2, 1);
+        // icon 0 is the least recently used one
+        Assert.assertNull(extension.getResource(first.get(0)));
+        Assert.assertNotNull(extension.getResource(first.get(1)));
+        Assert.assertNotNull(extension.getResource(third.get(0)));
+    }
+
+    @Test
+    public void keepsOnlyTheIconsOfTheCurrentResponseWithoutRegistry() {
+        extension.setIconRegistrySize(0);
+        List<String> first = send(0, 3);
+        for (String key : first) {
+            Assert.assertNotNull(extension.getResource(key));
+        }
+
+        List<String> second = send(2, 2);
+        Assert.assertNull(extension.getResource(first.get(0)));
+        Assert.assertNull(extension.getResource(first.get(1)));
+        Assert.assertEquals(first.get(2), second.get(0));
+        Assert.assertNotNull(extension.getResource(second.get(0)));
+        Assert.assertNotNull(extension.getResource(second.get(1)));
+    }
+
+    @Test
+    public void keepsOneHundredIconsByDefault() {
+        List<String> first = send(0, 150);
+        for (String key : first) {
+            Assert.assertNotNull(extension.getResource(key));
+        }
+
+        send(150, 1);
+        int registered = 0;
+        for (String key : first) {
+            if (extension.getResource(key) != null) {
+                ++registered;
+            }
+        }
+        Assert.assertEquals(99, registered);
+    }
+
+    /**
+     * Encodes suggestions with the given icons, each with a new value.
+     *
+     * @param firstIcon Number of the first icon.
+     * @param count Number of suggestions.
+     * @return The icon keys of the suggestions.
+     */
+    private List<String> send(int firstIcon, int count) {
+        ++response;
+        Set<AutocompleteSuggestion> suggestions
+                = new LinkedHashSet<AutocompleteSuggestion>();
+        for (int i = firstIcon; i < firstIcon + count; ++i) {
+            suggestions.add(new AutocompleteSuggestion(response + "-" + i,
+                    null, new ExternalResource("http://example.com/" + i + ".png")));
+        }
+        JsonArray icons = ((JsonObject) extension.suggestionsToJson(suggestions))
+                .getArray("icon");
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < icons.length(); ++i) {
+            keys.add(icons.getString(i));
+        }
+        return keys;
+    }
+
+    private static class IconExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected JsonValue suggestionsToJson(Set<AutocompleteSuggestion> suggestions) {
+            // visible to the test
+            return super.suggestionsToJson(suggestions);
+        }
+
+        @Override
+        protected Resource getResource(String key) {
+            // visible to the test
+            return super.getResource(key);
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.metrics.JmxAutocompleteMetrics;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JmxAutocompleteMetricsTest {
+
+    private final JmxAutocompleteMetrics metrics = JmxAutocompleteMetrics.getInstance();
+
+    private final CollectionSuggestionProvider provider
+            = new CollectionSuggestionProvider(Arrays.asList("Java", "Scala"));
+
+    private CollectionSuggestionProvider copy;
+
+    @After
+    public void unregister() {
+        metrics.unregister(provider);
+        metrics.unregister(copy);
+    }
+
+    @Test
+    public void measuresOnlyRegisteredProviders() {
+        metrics.register(provider, "registered");
+        metrics.recordQuery(provider, null, 1000, 0);
+        Assert.assertEquals(1, metrics.getProviderMetrics(provider).getQueryCount());
+
+        // equal, but another provider
+        copy = new CollectionSuggestionProvider(provider.getValues());
+        metrics.recordQuery(copy, null, 1000, 0);
+        Assert.assertNull(metrics.getProviderMetrics(copy));
+        Assert.assertEquals(1, metrics.getProviderMetrics(provider).getQueryCount());
+    }
+
+    @Test
+    public void measuresDeserializedProvidersOnceTheyAreRegisteredAgain()
+            throws IOException, ClassNotFoundException {
+        metrics.register(provider, "serialized");
+        AutocompleteTextFieldExtension extension = new AutocompleteTextFieldExtension()
+                .withSuggestionProvider(provider).withMetrics(metrics);
+
+        AutocompleteTextFieldExtension deserialized = roundTrip(extension);
+        Assert.assertSame(metrics, deserialized.getMetrics());
+        copy = (CollectionSuggestionProvider) deserialized.getSuggestionProvider();
+        Assert.assertNotSame(provider, copy);
+        Assert.assertNull(metrics.getProviderMetrics(copy));
+
+        metrics.register(copy, "serialized");
+        metrics.recordQuery(copy, null, 1000, 0);
+        Assert.assertEquals(1, metrics.getProviderMetrics(copy).getQueryCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T object)
+            throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        return (T) in.readObject();
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ClientMethodInvocation;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionSink;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.AbstractSinkSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PagingTest {
+
+    private final List<String> values = Arrays.asList(
+            "a1", "a2", "a3", "a4", "a5", "b1");
+
+    private final PagingExtension extension = new PagingExtension();
+
+    @Test
+    public void loadsPagesUntilThereAreNoMoreSuggestions() {
+        extension.setSuggestionProvider(new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS, false, Locale.US));
+        extension.setSuggestionLimit(2);
+        extension.setPagingEnabled(true);
+
+        assertPage(0, true, "a1", "a2");
+        assertPage(2, true, "a3", "a4");
+        assertPage(4, false, "a5");
+    }
+
+    @Test
+    public void skipsDuplicatesOfPreviousPages() {
+        extension.setSuggestionProvider(new CollectionSuggestionProvider(
+                Arrays.asList("a1", "a1", "a2", "a3", "a2", "a4", "a1", "a5"),
+                MatchMode.BEGINS, false, Locale.US));
+        extension.setSuggestionLimit(2);
+        extension.setPagingEnabled(true);
+
+        assertPage(0, true, "a1", "a2");
+        assertPage(2, true, "a3", "a4");
+        assertPage(4, false, "a5");
+    }
+
+    @Test
+    public void looksAheadOnAnExactlyFullLastPage() {
+        extension.setSuggestionProvider(new PrefixProvider());
+        extension.setSuggestionLimit(5);
+        extension.setPagingEnabled(true);
+
+        // a sink provider is asked for a sixth suggestion, but there is none
+        assertPage(0, false, "a1", "a2", "a3", "a4", "a5");
+    }
+
+    @Test
+    public void findsTheNextPageOfSinkProviders() {
+        extension.setSuggestionProvider(new PrefixProvider());
+        extension.setSuggestionLimit(2);
+        extension.setPagingEnabled(true);
+
+        assertPage(0, true, "a1", "a2");
+        assertPage(2, true, "a3", "a4");
+        assertPage(4, false, "a5");
+    }
+
+    @Test
+    public void takesAFullPageOfOtherProvidersAsMore() {
+        extension.setSuggestionProvider(new CollectionSuggestionProvider(
+                values, MatchMode.BEGINS, false, Locale.US));
+        extension.setSuggestionLimit(5);
+        extension.setPagingEnabled(true);
+
+        assertPage(0, true, "a1", "a2", "a3", "a4", "a5");
+        assertPage(5, false);
+    }
+
+    @Test
+    public void doesNotReportMoreWithoutPaging() {
+        extension.setSuggestionProvider(new PrefixProvider());
+        extension.setSuggestionLimit(2);
+
+        assertPage(0, false, "a1", "a2");
+    }
+
+    private void assertPage(int offset, boolean hasMore, String... expected) {
+        extension.queryPage(Json.create(offset), "a", offset);
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        JsonArray response = (JsonArray) calls.get(0).getParameters()[1];
+        JsonArray suggestions = response.getObject(1).getArray("value");
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < suggestions.length(); ++i) {
+            values.add(suggestions.getString(i));
+        }
+        Assert.assertEquals(Arrays.asList(expected), values);
+        Assert.assertEquals(hasMore, response.getObject(2).hasKey("hasMore"));
+    }
+
+    /**
+     * A sink provider matching the values that begin with the term.
+     */
+    private class PrefixProvider extends AbstractSinkSuggestionProvider {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void querySuggestions(AutocompleteQuery query, AutocompleteSuggestionSink sink) {
+            int skip = query.getOffset();
+            for (String value : values) {
+                if (!value.startsWith(query.getTerm()) || skip-- > 0) {
+                    continue;
+                }
+                if (!sink.add(new AutocompleteSuggestion(value))) {
+                    return;
+                }
+            }
+        }
+
+    }
+
+    private static class PagingExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void queryPage(JsonValue requestId, String term, int offset) {
+            // visible to the test
+            super.queryPage(requestId, term, offset);
+        }
+
+    }
+
+}
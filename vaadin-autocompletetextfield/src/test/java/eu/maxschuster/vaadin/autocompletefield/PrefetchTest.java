@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ClientMethodInvocation;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrefetchTest {
+
+    private static final List<String> VALUES = Arrays.asList(
+            "Apple", "Apricot", "Avocado", "Banana", "Blueberry", "Cherry");
+
+    @Test
+    public void sendsTheSuggestionsOfTheTextAndThePrefetchTerms() {
+        PrefetchExtension extension = new PrefetchExtension();
+        extension.withPrefetchEnabled(true).withPrefetchTerms("b", "c")
+                .withMinChars(1);
+
+        extension.prefetch("ap");
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(Arrays.asList("ap", "b", "c"), getTerms(calls));
+        Assert.assertEquals(Arrays.asList("Apple", "Apricot"),
+                getValues(calls.get(0)));
+        Assert.assertEquals(Arrays.asList("Banana", "Blueberry"),
+                getValues(calls.get(1)));
+        Assert.assertEquals(Arrays.asList("Cherry"), getValues(calls.get(2)));
+    }
+
+    @Test
+    public void skipsTermsShorterThanTheMinimumNumberOfCharacters() {
+        PrefetchExtension extension = new PrefetchExtension();
+        extension.withPrefetchEnabled(true).withPrefetchTerms("b", "bl")
+                .withMinChars(2);
+
+        extension.prefetch("a");
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(Arrays.asList("bl"), getTerms(calls));
+        Assert.assertEquals(Arrays.asList("Blueberry"), getValues(calls.get(0)));
+    }
+
+    @Test
+    public void tellsThePagingStateOfPrefetchedSuggestions() {
+        PrefetchExtension extension = new PrefetchExtension();
+        extension.withPrefetchEnabled(true).withPrefetchTerms("c")
+                .withMinChars(1).withSuggestionLimit(2).withPagingEnabled(true);
+
+        extension.prefetch("a");
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(Arrays.asList("a", "c"), getTerms(calls));
+        Assert.assertTrue(getOptions(calls.get(0)).hasKey("hasMore"));
+        Assert.assertFalse(getOptions(calls.get(1)).hasKey("hasMore"));
+    }
+
+    @Test
+    public void doesNothingWhenDisabled() {
+        PrefetchExtension extension = new PrefetchExtension();
+        extension.withPrefetchTerms("b").withMinChars(1);
+
+        extension.prefetch("a");
+        Assert.assertTrue(extension.retrievePendingRpcCalls().isEmpty());
+    }
+
+    private static List<String> getTerms(List<ClientMethodInvocation> calls) {
+        List<String> terms = new ArrayList<String>();
+        for (ClientMethodInvocation call : calls) {
+            Assert.assertEquals("setPrefetchedSuggestions", call.getParameters()[0]);
+            terms.add(getArguments(call).getString(0));
+        }
+        return terms;
+    }
+
+    private static List<String> getValues(ClientMethodInvocation call) {
+        JsonArray suggestions = getArguments(call).getObject(1).getArray("value");
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < suggestions.length(); i++) {
+            values.add(suggestions.getString(i));
+        }
+        return values;
+    }
+
+    private static JsonObject getOptions(ClientMethodInvocation call) {
+        return getArguments(call).getObject(2);
+    }
+
+    private static JsonArray getArguments(ClientMethodInvocation call) {
+        return (JsonArray) call.getParameters()[1];
+    }
+
+    private static class PrefetchExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        public PrefetchExtension() {
+            setSuggestionProvider(new CollectionSuggestionProvider(VALUES,
+                    MatchMode.BEGINS, true));
+        }
+
+        @Override
+        protected void prefetch(String text) {
+            // visible to the test
+            super.prefetch(text);
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ServerRpcManager;
+import com.vaadin.server.ServerRpcManager.RpcInvocationException;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.ui.JavaScript.JavaScriptCallbackRpc;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteRateLimiter;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlowQueryLogTest {
+
+    private static final long SECONDS = 1000000000L;
+
+    private final Logger logger = Logger.getLogger(
+            AutocompleteTextFieldExtension.class.getName());
+
+    private final List<LogRecord> records = new ArrayList<LogRecord>();
+
+    private final Handler handler = new Handler() {
+
+        @Override
+        public void publish(LogRecord record) {
+            if (record.getMessage().startsWith("Slow query")) {
+                records.add(record);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+    };
+
+    /**
+     * Current time of the fake clock of the sampler in nanoseconds
+     */
+    private final long[] now = {0};
+
+    private final AutocompleteRateLimiter sampler = new AutocompleteRateLimiter(1, 1) {
+
+        @Override
+        protected long currentTimeNanos() {
+            return now[0];
+        }
+
+    };
+
+    private final AutocompleteTextFieldExtension extension
+            = new AutocompleteTextFieldExtension()
+                    .withSuggestionProvider(new SlowProvider(5))
+                    .withSlowQuerySampler(sampler);
+
+    private int requestId = 0;
+
+    @Before
+    public void addHandler() {
+        logger.addHandler(handler);
+    }
+
+    @After
+    public void removeHandler() {
+        logger.removeHandler(handler);
+    }
+
+    @Test
+    public void logsQueriesSlowerThanTheThreshold() throws RpcInvocationException {
+        extension.setSlowQueryThreshold(1);
+        query("java");
+        Assert.assertEquals(1, records.size());
+        LogRecord record = records.get(0);
+        Assert.assertEquals(Level.INFO, record.getLevel());
+        Object[] parameters = record.getParameters();
+        Assert.assertEquals("java", parameters[0]);
+        Assert.assertEquals(SlowProvider.class.getName(), parameters[3]);
+        Assert.assertEquals(1, parameters[4]);
+        Assert.assertEquals(0L, parameters[9]);
+    }
+
+    @Test
+    public void ignoresFasterQueries() throws RpcInvocationException {
+        extension.setSlowQueryThreshold(60000);
+        query("java");
+        Assert.assertTrue(records.isEmpty());
+    }
+
+    @Test
+    public void reportsTheNumberOfSuppressedEntries() throws RpcInvocationException {
+        extension.setSlowQueryThreshold(1);
+        query("a");
+        query("b");
+        query("c");
+        Assert.assertEquals(1, records.size());
+
+        now[0] += SECONDS;
+        query("d");
+        Assert.assertEquals(2, records.size());
+        Object[] parameters = records.get(1).getParameters();
+        Assert.assertEquals("d", parameters[0]);
+        Assert.assertEquals(2L, parameters[9]);
+    }
+
+    /**
+     * Sends a query like the client-side does.
+     */
+    private void query(String term) throws RpcInvocationException {
+        JsonArray arguments = Json.createArray();
+        arguments.set(0, ++requestId);
+        arguments.set(1, term);
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "test", JavaScriptCallbackRpc.class, "call", 2);
+        invocation.setParameters(new Object[]{"serverQuerySuggestions", arguments});
+        ServerRpcManager.applyInvocation(extension, invocation);
+        extension.retrievePendingRpcCalls();
+    }
+
+    /**
+     * Takes the given time for each query and suggests the term.
+     */
+    private static class SlowProvider implements AutocompleteSuggestionProvider {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long millis;
+
+        public SlowProvider(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonList(
+                    new AutocompleteSuggestion(query.getTerm()));
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import com.vaadin.server.ClientMethodInvocation;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteQuery;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.CollectionSuggestionProvider;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.MatchMode;
+import eu.maxschuster.vaadin.autocompletetextfield.provider.StagedSuggestionProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StagedSuggestionProviderTest {
+
+    private final List<String> values = Arrays.asList(
+            "Java", "JavaScript", "Join Java", "JavaFX Script", "Scala");
+
+    private final StagedExtension extension = new StagedExtension();
+
+    @Test
+    public void sendsNewSuggestionsOfEachStage() {
+        extension.setSuggestionProvider(new StagedSuggestionProvider(
+                stage(MatchMode.BEGINS), stage(MatchMode.CONTAINS)));
+
+        extension.queryStage(Json.create(1), "java", 0);
+        JsonArray response = retrieveResponse();
+        Assert.assertEquals(Arrays.asList("Java", "JavaScript", "JavaFX Script"),
+                getValues(response));
+        Assert.assertEquals(1, (int) response.getObject(2).getNumber("next"));
+
+        extension.queryStage(Json.create(1), "java", 1);
+        response = retrieveResponse();
+        // the suggestions of the first stage are not sent again
+        Assert.assertEquals(Arrays.asList("Join Java"), getValues(response));
+        Assert.assertFalse(response.getObject(2).hasKey("next"));
+    }
+
+    @Test
+    public void skipsStagesWithoutNewSuggestions() {
+        AutocompleteSuggestionProvider empty = new AutocompleteSuggestionProvider() {
+            @Override
+            public Collection<AutocompleteSuggestion> querySuggestions(AutocompleteQuery query) {
+                return Collections.emptyList();
+            }
+        };
+        extension.setSuggestionProvider(new StagedSuggestionProvider(empty,
+                stage(MatchMode.BEGINS), stage(MatchMode.BEGINS),
+                stage(MatchMode.CONTAINS)));
+
+        extension.queryStage(Json.create(1), "java", 0);
+        JsonArray response = retrieveResponse();
+        Assert.assertEquals(3, getValues(response).size());
+        Assert.assertEquals(2, (int) response.getObject(2).getNumber("next"));
+
+        extension.queryStage(Json.create(1), "java", 2);
+        response = retrieveResponse();
+        Assert.assertEquals(Arrays.asList("Join Java"), getValues(response));
+        Assert.assertFalse(response.getObject(2).hasKey("next"));
+    }
+
+    @Test
+    public void stopsAtTheLimit() {
+        extension.setSuggestionLimit(2);
+        extension.setSuggestionProvider(new StagedSuggestionProvider(
+                stage(MatchMode.BEGINS), stage(MatchMode.CONTAINS)));
+
+        extension.queryStage(Json.create(1), "java", 0);
+        JsonArray response = retrieveResponse();
+        Assert.assertEquals(2, getValues(response).size());
+        Assert.assertFalse(response.getObject(2).hasKey("next"));
+    }
+
+    @Test
+    public void answersExpiredStagesWithoutSuggestions() {
+        extension.setSuggestionProvider(new StagedSuggestionProvider(
+                stage(MatchMode.BEGINS), stage(MatchMode.CONTAINS)));
+
+        extension.queryStage(Json.create(1), "java", 0);
+        retrieveResponse();
+        extension.queryStage(Json.create(2), "scala", 0);
+        retrieveResponse();
+
+        // the next stage of the superseded query
+        extension.queryStage(Json.create(1), "java", 1);
+        JsonArray response = retrieveResponse();
+        Assert.assertTrue(getValues(response).isEmpty());
+        Assert.assertFalse(response.getObject(2).hasKey("next"));
+
+        // the last stage of the newer query ends it
+        extension.queryStage(Json.create(2), "scala", 1);
+        retrieveResponse();
+        extension.queryStage(Json.create(2), "scala", 1);
+        response = retrieveResponse();
+        Assert.assertTrue(getValues(response).isEmpty());
+        Assert.assertFalse(response.getObject(2).hasKey("next"));
+    }
+
+    private CollectionSuggestionProvider stage(MatchMode matchMode) {
+        return new CollectionSuggestionProvider(values, matchMode, true, Locale.US);
+    }
+
+    /**
+     * Gets the arguments of the only "setSuggestions" call since the last
+     * invocation: request id, suggestions and options.
+     */
+    private JsonArray retrieveResponse() {
+        List<ClientMethodInvocation> calls = extension.retrievePendingRpcCalls();
+        Assert.assertEquals(1, calls.size());
+        Object[] parameters = calls.get(0).getParameters();
+        Assert.assertEquals("setSuggestions", parameters[0]);
+        return (JsonArray) parameters[1];
+    }
+
+    private static List<String> getValues(JsonArray response) {
+        if (response.get(1).getType() == JsonType.ARRAY) {
+            // responses without suggestions are sent as empty array
+            Assert.assertEquals(0, response.getArray(1).length());
+            return Collections.emptyList();
+        }
+        JsonArray suggestions = response.getObject(1).getArray("value");
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < suggestions.length(); ++i) {
+            values.add(suggestions.getString(i));
+        }
+        return values;
+    }
+
+    private static class StagedExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void queryStage(JsonValue requestId, String term, int stage) {
+            // visible to the test
+            super.queryStage(requestId, term, stage);
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Max Schuster.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.maxschuster.vaadin.autocompletefield;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteSuggestion;
+import eu.maxschuster.vaadin.autocompletetextfield.AutocompleteTextFieldExtension;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SuggestionsToJsonTest {
+
+    private final EncodingExtension extension = new EncodingExtension();
+
+    private List<String> previousValues = new ArrayList<String>();
+
+    @Test
+    public void omitsEmptyColumns() {
+        JsonObject json = encode(new AutocompleteSuggestion("Java"),
+                new AutocompleteSuggestion("Scala"));
+        Assert.assertEquals("[\"Java\",\"Scala\"]", json.getArray("value").toJson());
+        Assert.assertFalse(json.hasKey("description"));
+        Assert.assertFalse(json.hasKey("icon"));
+        Assert.assertFalse(json.hasKey("styleNames"));
+        Assert.assertFalse(json.hasKey("styles"));
+        Assert.assertFalse(json.hasKey("ref"));
+    }
+
+    @Test
+    public void encodesColumnsWithNullsForMissingValues() {
+        JsonObject json = encode(new AutocompleteSuggestion("Java"),
+                new AutocompleteSuggestion("JavaScript", "Web"));
+        JsonArray descriptions = json.getArray("description");
+        Assert.assertEquals(2, descriptions.length());
+        Assert.assertEquals(JsonType.NULL, descriptions.get(0).getType());
+        Assert.assertEquals("Web", descriptions.getString(1));
+    }
+
+    @Test
+    public void encodesStyleNamesAsIndexesIntoAStringTable() {
+        JsonObject json = encode(
+                new AutocompleteSuggestion("Java").withStyleName("lang"),
+                new AutocompleteSuggestion("JavaScript").withStyleName("lang", "web", null),
+                new AutocompleteSuggestion("Scala"));
+        JsonArray styles = json.getArray("styles");
+        Assert.assertEquals(2, styles.length());
+        Assert.assertEquals("lang", styles.getString(0));
+        Assert.assertEquals("web", styles.getString(1));
+        JsonArray styleNames = json.getArray("styleNames");
+        Assert.assertEquals("[0]", styleNames.get(0).toJson());
+        Assert.assertEquals("[0,1]", styleNames.get(1).toJson());
+        Assert.assertEquals(JsonType.NULL, styleNames.get(2).getType());
+    }
+
+    @Test
+    public void referencesAnUnchangedResult() {
+        decode(encode(new AutocompleteSuggestion("Java"),
+                new AutocompleteSuggestion("Scala")));
+        JsonObject json = encode(new AutocompleteSuggestion("Java"),
+                new AutocompleteSuggestion("Scala"));
+        Assert.assertEquals("[0,1]", json.getArray("ref").toJson());
+        Assert.assertEquals(0, json.getArray("value").length());
+        Assert.assertEquals(Arrays.asList("Java", "Scala"), decode(json));
+    }
+
+    @Test
+    public void sendsAChangedResultWithoutReferences() {
+        decode(encode(new AutocompleteSuggestion("Java"),
+                new AutocompleteSuggestion("Scala")));
+        JsonObject json = encode(new AutocompleteSuggestion("Kotlin"),
+                new AutocompleteSuggestion("Groovy"));
+        Assert.assertFalse(json.hasKey("ref"));
+        Assert.assertEquals(Arrays.asList("Kotlin", "Groovy"), decode(json));
+    }
+
+    @Test
+    public void referencesTheOverlapOfAPartiallyChangedResult() {
+        decode(encode(new AutocompleteSuggestion("Java"),
+                new AutocompleteSuggestion("JavaScript"),
+                new AutocompleteSuggestion("Scala")));
+        JsonObject json = encode(new AutocompleteSuggestion("Scala"),
+                new AutocompleteSuggestion("Kotlin"),
+                new AutocompleteSuggestion("Java"));
+        Assert.assertEquals("[2,-1,0]", json.getArray("ref").toJson());
+        Assert.assertEquals("[\"Kotlin\"]", json.getArray("value").toJson());
+        Assert.assertEquals(Arrays.asList("Scala", "Kotlin", "Java"),
+                decode(json));
+    }
+
+    @Test
+    public void sendsASuggestionWithAChangedDescriptionAgain() {
+        decode(encode(new AutocompleteSuggestion("Java", "JVM")));
+        JsonObject json = encode(new AutocompleteSuggestion("Java", "Oracle"));
+        Assert.assertFalse(json.hasKey("ref"));
+        Assert.assertEquals("Oracle", json.getArray("description").getString(0));
+    }
+
+    @Test
+    public void doesNotReferenceAResponseBeforeAnInitialResponse() {
+        decode(encode(new AutocompleteSuggestion("Java")));
+        // the connector has been recreated
+        extension.beforeClientResponse(true);
+        extension.retrievePendingRpcCalls();
+        JsonObject json = encode(new AutocompleteSuggestion("Java"));
+        Assert.assertFalse(json.hasKey("ref"));
+        Assert.assertEquals(Arrays.asList("Java"), decode(json));
+    }
+
+    /**
+     * Decodes the values like the client-side does and keeps them for the
+     * references of the next response.
+     */
+    private List<String> decode(JsonObject json) {
+        JsonArray values = json.getArray("value");
+        List<String> decoded = new ArrayList<String>();
+        if (json.hasKey("ref")) {
+            JsonArray refs = json.getArray("ref");
+            int next = 0;
+            for (int i = 0; i < refs.length(); ++i) {
+                int ref = (int) refs.getNumber(i);
+                decoded.add(ref >= 0 ? previousValues.get(ref)
+                        : values.getString(next++));
+            }
+        } else {
+            for (int i = 0; i < values.length(); ++i) {
+                decoded.add(values.getString(i));
+            }
+        }
+        previousValues = decoded;
+        return decoded;
+    }
+
+    private JsonObject encode(AutocompleteSuggestion... suggestions) {
+        Set<AutocompleteSuggestion> set = new LinkedHashSet<AutocompleteSuggestion>(
+                Arrays.asList(suggestions));
+        return (JsonObject) extension.suggestionsToJson(set);
+    }
+
+    private static class EncodingExtension extends AutocompleteTextFieldExtension {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected JsonValue suggestionsToJson(Set<AutocompleteSuggestion> suggestions) {
+            // visible to the test
+            return super.suggestionsToJson(suggestions);
+        }
+
+    }
+
+}